@@ -24,12 +24,9 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
-
-import org.apache.commons.io.IOUtils;
 
 import net.minecraftforge.gradle.common.util.Utils;
+import net.minecraftforge.gradle.common.util.ZipCache;
 
 public class MCPConfigV2 extends MCPConfigV1 {
     public static MCPConfigV2 get(InputStream stream) {
@@ -39,21 +36,21 @@ public class MCPConfigV2 extends MCPConfigV1 {
         return get(new ByteArrayInputStream(data));
     }
 
+    /**
+     * The archive's data is cached by ZipCache, but a new config is parsed every call, as callers are free to modify it.
+     */
     public static MCPConfigV2 getFromArchive(File path) throws IOException {
-        try (ZipFile zip = new ZipFile(path)) {
-            ZipEntry entry = zip.getEntry("config.json");
-            if (entry == null)
-                throw new IllegalStateException("Could not find 'config.json' in " + path.getAbsolutePath());
+        byte[] data = ZipCache.getData(path, "config.json");
+        if (data == null)
+            throw new IllegalStateException("Could not find 'config.json' in " + path.getAbsolutePath());
 
-            byte[] data = IOUtils.toByteArray(zip.getInputStream(entry));
-            int spec = Config.getSpec(data);
-            if (spec == 2)
-                return MCPConfigV2.get(data);
-            if (spec == 1)
-                return new MCPConfigV2(MCPConfigV1.get(data));
+        int spec = Config.getSpec(data);
+        if (spec == 2)
+            return MCPConfigV2.get(data);
+        if (spec == 1)
+            return new MCPConfigV2(MCPConfigV1.get(data));
 
-            throw new IllegalStateException("Invalid MCP Config: " + path.getAbsolutePath() + " Unknown spec: " + spec);
-        }
+        throw new IllegalStateException("Invalid MCP Config: " + path.getAbsolutePath() + " Unknown spec: " + spec);
     }
 
     private boolean official = false;
@@ -21,19 +21,25 @@
 package net.minecraftforge.gradle.common.task;
 
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
 
+import net.minecraftforge.gradle.common.util.BinPatcher;
 import net.minecraftforge.gradle.common.util.Utils;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-public class ApplyBinPatches extends JarExec {
+public abstract class ApplyBinPatches extends JarExec {
     private Supplier<File> clean;
     private File patch;
     private File output;
@@ -53,6 +59,70 @@ public class ApplyBinPatches extends JarExec {
         return Arrays.stream(getArgs()).map(arg -> replace.getOrDefault(arg, arg)).collect(Collectors.toList());
     }
 
+    @Override
+    @TaskAction
+    public void apply() throws IOException {
+        if (!canApplyInProcess()) {
+            super.apply();
+            return;
+        }
+
+        List<String> args = filterArgs();
+        File clean = null;
+        File output = null;
+        List<File> patches = new ArrayList<>();
+        String prefix = null;
+        boolean data = false;
+        boolean unpatched = false;
+        for (int x = 0; x < args.size(); x++) {
+            switch (args.get(x)) {
+                case "--clean":     clean = new File(args.get(++x)); break;
+                case "--output":    output = new File(args.get(++x)); break;
+                case "--apply":     patches.add(new File(args.get(++x))); break;
+                case "--prefix":    prefix = args.get(++x); break;
+                case "--data":      data = true; break;
+                case "--unpatched": unpatched = true; break;
+            }
+        }
+
+        Map<String, List<BinPatcher.Patch>> loaded = new LinkedHashMap<>();
+        for (File patch : patches)
+            BinPatcher.load(patch, prefix).forEach((k, v) -> loaded.computeIfAbsent(k, a -> new ArrayList<>()).addAll(v));
+        BinPatcher.apply(clean, output, loaded, data, unpatched);
+    }
+
+    /**
+     * Only BinaryPatcher's apply mode is implemented in process, anything else, or any argument we don't understand, still forks the tool.
+     */
+    private boolean canApplyInProcess() {
+        if (getTool() == null || !getTool().startsWith("net.minecraftforge:binarypatcher:"))
+            return false;
+        List<String> args = Arrays.asList(getArgs());
+        for (int x = 0; x < args.size(); x++) {
+            switch (args.get(x)) {
+                case "--clean":
+                case "--output":
+                case "--apply":
+                case "--prefix":
+                    x++;
+                    break;
+                case "--data":
+                case "--unpatched":
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return args.contains("--clean") && args.contains("--output") && args.contains("--apply");
+    }
+
+    @Override
+    @Optional
+    @InputFile
+    public File getToolJar() {
+        return canApplyInProcess() ? null : super.getToolJar();
+    }
+
     @InputFile
     public File getClean() {
         return clean.get();
@@ -21,33 +21,62 @@
 package net.minecraftforge.gradle.common.task;
 
 import org.gradle.api.DefaultTask;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.OutputFiles;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.gradle.workers.WorkerExecutor;
 
-import com.google.common.collect.Maps;
-import com.google.common.hash.Hashing;
-import com.google.common.hash.HashingInputStream;
+import net.minecraftforge.gradle.common.util.HashFunction;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 
-public class ArchiveChecksum extends DefaultTask {
+import javax.inject.Inject;
+
+public abstract class ArchiveChecksum extends DefaultTask {
+    //Entries are mostly deflated, so they have to go through the Inflater and we can't read them straight off a FileChannel.
+    //A reused heap buffer per worker thread is the closest we get.
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+    private static final int PARTITION_SIZE = 256; //Entries per work item at the least, so small archives don't open the zip once per worker.
+
+    private final int maxWorkers = getProject().getGradle().getStartParameter().getMaxWorkerCount();
 
     private Supplier<File> input;
     private File output;
+    private List<HashFunction> functions = new ArrayList<>(Collections.singletonList(HashFunction.SHA256));
+    private boolean incremental = false;
     //TODO: Filters of some kind?
 
-    @Input
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
     public File getInput() {
         return input.get();
     }
@@ -74,27 +103,185 @@ public class ArchiveChecksum extends DefaultTask {
             setOutput(getProject().file("build/" + getName() + "/" + value + ".sha256"));
     }
 
+    /**
+     * Hash functions to calculate, all in the same pass over the archive.
+     * The first one is written to {@link #getOutput()}, the rest next to it using the function's extension.
+     */
+    @Input
+    public List<HashFunction> getFunctions() {
+        return this.functions;
+    }
+    public void setFunctions(HashFunction... values) {
+        this.functions = new ArrayList<>(Arrays.asList(values));
+    }
+    public void function(HashFunction value) {
+        if (!this.functions.contains(value))
+            this.functions.add(value);
+    }
+
+    @OutputFiles
+    public List<File> getExtraOutputs() {
+        String path = getOutput().getAbsolutePath();
+        int idx = path.lastIndexOf('.');
+        String base = idx > path.lastIndexOf(File.separatorChar) ? path.substring(0, idx) : path;
+        return getFunctions().stream().skip(1).map(f -> new File(base + '.' + f.getExtension())).collect(Collectors.toList());
+    }
+
+    /**
+     * When enabled, entries whose CRC32 and size match the last run reuse their previous hashes instead of being read again.
+     */
+    @Input
+    public boolean getIncremental() {
+        return this.incremental;
+    }
+    public void setIncremental(boolean value) {
+        this.incremental = value;
+    }
+
+    @Internal
+    public File getCacheFile() {
+        return getProject().file("build/" + getName() + "/cache.txt");
+    }
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
     @TaskAction
     public void run() throws IOException {
-        Map<String, String> checksums = Maps.newTreeMap(); //Tree so we're sorted alphabetically!
-        try (ZipInputStream zin = new ZipInputStream(new FileInputStream(getInput()))) {
-            ZipEntry entry;
-            byte[] buff = new byte[1024];
-            while ((entry = zin.getNextEntry()) != null) {
-                @SuppressWarnings("resource") //We dont want to close the input
-                HashingInputStream hash = new HashingInputStream(Hashing.sha256(), zin);
-                while (hash.read(buff, 0, buff.length) != -1); //Read all the data, we dont care, but the stream auto-hashes;
-                checksums.put(entry.getName(), Base64.getEncoder().encodeToString(hash.hash().asBytes()));
+        List<HashFunction> functions = getFunctions();
+        Map<String, String[]> previous = getIncremental() ? loadCache(functions) : Collections.emptyMap();
+        Map<String, String[]> checksums = new HashMap<>();
+        Map<String, String> keys = new HashMap<>();
+        List<String> pending = new ArrayList<>();
+
+        try (ZipFile zip = new ZipFile(getInput())) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                String key = entry.getCrc() + ":" + entry.getSize();
+                keys.put(entry.getName(), key);
+                String[] cached = previous.get(entry.getName() + '\t' + key);
+                if (cached != null)
+                    checksums.put(entry.getName(), cached);
+                else
+                    pending.add(entry.getName());
             }
         }
 
-        try(PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(getOutput())))) {
-            checksums.forEach((name, hash) -> {
-                out.write(hash);
-                out.write(' ');
-                out.write(name);
-                out.write('\n');
+        // Deal the remaining entries out round robin, so large entries spread evenly, and hash each share in its own work item.
+        int count = Math.min(maxWorkers, (pending.size() + PARTITION_SIZE - 1) / PARTITION_SIZE);
+        List<File> parts = new ArrayList<>();
+        for (int x = 0; x < count; x++) {
+            List<String> entries = new ArrayList<>();
+            for (int y = x; y < pending.size(); y += count)
+                entries.add(pending.get(y));
+
+            File part = new File(getTemporaryDir(), "part" + x + ".txt");
+            parts.add(part);
+            getWorkerExecutor().noIsolation().submit(HashEntries.class, params -> {
+                params.getInput().set(getInput());
+                params.getEntries().set(entries);
+                params.getFunctions().set(functions);
+                params.getOutput().set(part);
             });
         }
+        getWorkerExecutor().await();
+
+        for (File part : parts) {
+            for (String line : Files.readAllLines(part.toPath(), StandardCharsets.UTF_8)) {
+                int idx = line.lastIndexOf('\t');
+                checksums.put(line.substring(0, idx), line.substring(idx + 1).split(","));
+            }
+            part.delete();
+        }
+
+        Map<String, String[]> sorted = new TreeMap<>(checksums); //Tree so we're sorted alphabetically!
+        List<File> outputs = new ArrayList<>();
+        outputs.add(getOutput());
+        outputs.addAll(getExtraOutputs());
+        for (int x = 0; x < outputs.size(); x++) {
+            try (BufferedWriter out = Files.newBufferedWriter(outputs.get(x).toPath(), StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, String[]> entry : sorted.entrySet()) {
+                    out.write(entry.getValue()[x]);
+                    out.write(' ');
+                    out.write(entry.getKey());
+                    out.write('\n');
+                }
+            }
+        }
+
+        if (getIncremental()) {
+            if (!getCacheFile().getParentFile().exists())
+                getCacheFile().getParentFile().mkdirs();
+            try (BufferedWriter out = Files.newBufferedWriter(getCacheFile().toPath(), StandardCharsets.UTF_8)) {
+                out.write(functions.stream().map(HashFunction::name).collect(Collectors.joining(",")));
+                out.write('\n');
+                for (Map.Entry<String, String[]> entry : sorted.entrySet()) {
+                    out.write(entry.getKey() + '\t' + keys.get(entry.getKey()) + '\t' + String.join(",", entry.getValue()));
+                    out.write('\n');
+                }
+            }
+        }
+    }
+
+    public interface Parameters extends WorkParameters {
+        RegularFileProperty getInput();
+        ListProperty<String> getEntries();
+        ListProperty<HashFunction> getFunctions();
+        RegularFileProperty getOutput();
+    }
+
+    // Hashes the given entries, in a single pass per entry, writing name<tab>hashes lines to the output.
+    public static abstract class HashEntries implements WorkAction<Parameters> {
+        @Override
+        public void execute() {
+            Parameters params = getParameters();
+            List<HashFunction> functions = params.getFunctions().get();
+            byte[] buf = BUFFER.get();
+            try (ZipFile zip = new ZipFile(params.getInput().get().getAsFile());
+                 BufferedWriter out = Files.newBufferedWriter(params.getOutput().get().getAsFile().toPath(), StandardCharsets.UTF_8)) {
+                for (String name : params.getEntries().get()) {
+                    MessageDigest[] digests = new MessageDigest[functions.size()];
+                    for (int x = 0; x < digests.length; x++)
+                        digests[x] = functions.get(x).get();
+
+                    try (InputStream is = zip.getInputStream(zip.getEntry(name))) {
+                        int len;
+                        while ((len = is.read(buf)) != -1) {
+                            for (MessageDigest digest : digests)
+                                digest.update(buf, 0, len);
+                        }
+                    }
+
+                    String[] hashes = new String[digests.length];
+                    for (int x = 0; x < digests.length; x++)
+                        hashes[x] = Base64.getEncoder().encodeToString(digests[x].digest());
+                    out.write(name + '\t' + String.join(",", hashes));
+                    out.write('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Entry name and CRC:size -> hashes, only if the last run used the same functions
+    private Map<String, String[]> loadCache(List<HashFunction> functions) throws IOException {
+        File cache = getCacheFile();
+        if (!cache.exists())
+            return Collections.emptyMap();
+
+        List<String> lines = Files.readAllLines(cache.toPath(), StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(functions.stream().map(HashFunction::name).collect(Collectors.joining(","))))
+            return Collections.emptyMap();
+
+        Map<String, String[]> ret = new HashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            int idx = line.lastIndexOf('\t');
+            if (idx == -1)
+                continue;
+            String[] hashes = line.substring(idx + 1).split(",");
+            if (hashes.length == functions.size())
+                ret.put(line.substring(0, idx), hashes);
+        }
+        return ret;
     }
 }
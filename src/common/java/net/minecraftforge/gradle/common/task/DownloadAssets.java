@@ -25,7 +25,12 @@ import net.minecraftforge.gradle.common.util.Utils;
 import net.minecraftforge.gradle.common.util.VersionJson;
 import org.apache.commons.io.FileUtils;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 
 import java.io.File;
@@ -42,7 +47,8 @@ import java.util.concurrent.TimeUnit;
 
 public class DownloadAssets extends DefaultTask {
     private static final String RESOURCE_REPO = "https://resources.download.minecraft.net/";
-    private File meta;
+    private final RegularFileProperty meta = getProject().getObjects().fileProperty();
+    private final DirectoryProperty output = getProject().getObjects().directoryProperty().fileValue(Utils.getCache(getProject(), "assets"));
 
     @TaskAction
     public void run() throws IOException, InterruptedException {
@@ -50,31 +56,32 @@ public class DownloadAssets extends DefaultTask {
         List<String> keys = new ArrayList<>(index.objects.keySet());
         Collections.sort(keys);
         File assetsPath = new File(Utils.getMCDir(), "/assets/objects");
+        File objects = new File(getOutput(), "objects");
         ExecutorService executorService = Executors.newFixedThreadPool(8);
         CopyOnWriteArrayList<String> failedDownloads = new CopyOnWriteArrayList<>();
         for (String key : keys) {
             Asset asset = index.objects.get(key);
-            File target = Utils.getCache(getProject(), "assets", "objects", asset.getPath());
+            File target = new File(objects, asset.getPath());
             if (!target.exists() || !HashFunction.SHA1.hash(target).equals(asset.hash)) {
                 URL url = new URL(RESOURCE_REPO + asset.getPath());
                 Runnable copyURLtoFile = () -> {
                     try {
                         File localFile = FileUtils.getFile(assetsPath + File.separator + asset.getPath());
                         if (localFile.exists()) {
-                            getProject().getLogger().lifecycle("Copying local object: " + asset.getPath() + " Asset: " + key);
+                            getLogger().lifecycle("Copying local object: " + asset.getPath() + " Asset: " + key);
                             FileUtils.copyFile(localFile, target);
                         } else {
-                            getProject().getLogger().lifecycle("Downloading: " + url + " Asset: " + key);
+                            getLogger().lifecycle("Downloading: " + url + " Asset: " + key);
                             FileUtils.copyURLToFile(url, target, 10_000, 5_000);
                         }
                         if (!HashFunction.SHA1.hash(target).equals(asset.hash)) {
                             failedDownloads.add(key);
                             Utils.delete(target);
-                            getProject().getLogger().error("{} Hash failed.", key);
+                            getLogger().error("{} Hash failed.", key);
                         }
                     } catch (IOException e) {
                         failedDownloads.add(key);
-                        getProject().getLogger().error("{} Failed.", key);
+                        getLogger().error("{} Failed.", key);
                         e.printStackTrace();
                     }
                 };
@@ -95,21 +102,34 @@ public class DownloadAssets extends DefaultTask {
 
     private File getIndex() throws IOException {
         VersionJson json = Utils.loadJson(getMeta(), VersionJson.class);
-        File target = Utils.getCache(getProject(), "assets", "indexes", json.assetIndex.id + ".json");
-        return Utils.updateDownload(getProject(), target, json.assetIndex);
+        File target = new File(getOutput(), "indexes/" + json.assetIndex.id + ".json");
+        return Utils.updateDownload(getLogger(), target, json.assetIndex);
     }
 
-    @InputFile
+    @Internal
     public File getMeta() {
+        return this.meta.getAsFile().getOrNull();
+    }
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getMetaProperty() {
         return this.meta;
     }
 
     public void setMeta(File value) {
-        this.meta = value;
+        this.meta.set(value);
     }
 
+    // Shared cache of every version's assets, so not tracked as an output.
+    @Internal
     public File getOutput() {
-        return Utils.getCache(getProject(), "assets");
+        return this.output.getAsFile().getOrNull();
+    }
+
+    @Internal
+    public DirectoryProperty getOutputProperty() {
+        return this.output;
     }
 
     private static class AssetIndex {
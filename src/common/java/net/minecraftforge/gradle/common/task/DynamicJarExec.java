@@ -34,7 +34,7 @@ import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
 
-public class DynamicJarExec extends JarExec {
+public abstract class DynamicJarExec extends JarExec {
 	private File input;
 	private File output;
 	private Map<String, File> data;
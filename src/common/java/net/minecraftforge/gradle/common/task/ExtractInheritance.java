@@ -32,7 +32,7 @@ import org.gradle.api.tasks.*;
 
 import net.minecraftforge.gradle.common.util.Utils;
 
-public class ExtractInheritance extends JarExec {
+public abstract class ExtractInheritance extends JarExec {
     public ExtractInheritance() {
         tool = Utils.INSTALLERTOOLS;
         args = new String[] { "--task", "extract_inheritance", "--input", "{input}", "--output", "{output}"};
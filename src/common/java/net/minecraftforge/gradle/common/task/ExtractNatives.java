@@ -23,8 +23,13 @@ package net.minecraftforge.gradle.common.task;
 import java.io.File;
 import java.io.IOException;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 
 import net.minecraftforge.gradle.common.util.Utils;
@@ -32,32 +37,45 @@ import net.minecraftforge.gradle.common.util.VersionJson;
 import net.minecraftforge.gradle.common.util.VersionJson.LibraryDownload;
 
 public class ExtractNatives extends DefaultTask {
-    private File meta;
-    private File output;
+    private final RegularFileProperty meta = getProject().getObjects().fileProperty();
+    private final DirectoryProperty output = getProject().getObjects().directoryProperty();
+    private final File libraries = Utils.getCache(getProject(), "libraries");
 
     @TaskAction
     public void run() throws IOException {
         VersionJson json = Utils.loadJson(getMeta(), VersionJson.class);
+        File output = getOutput();
         for (LibraryDownload lib : json.getNatives()) {
-            File target = Utils.getCache(getProject(), "libraries", lib.path);
-            Utils.updateDownload(getProject(), target, lib);
-            Utils.extractZip(target, getOutput(), false);
+            File target = new File(libraries, lib.path);
+            Utils.updateDownload(getLogger(), target, lib);
+            //Remember what we extracted, so running again with the same natives doesn't even need to open the jar.
+            File manifest = new File(getTemporaryDir(), lib.path.replace('/', '_') + ".extracted");
+            Utils.extractZip(target, output, false, false, manifest);
         }
     }
 
-    @InputFile
+    @Internal
     public File getMeta() {
+        return this.meta.getAsFile().getOrNull();
+    }
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getMetaProperty() {
         return this.meta;
     }
     public void setMeta(File value) {
-        this.meta = value;
+        this.meta.set(value);
     }
 
-    @OutputDirectory
+    @Internal
     public File getOutput() {
+        return this.output.getAsFile().getOrNull();
+    }
+    @OutputDirectory
+    public DirectoryProperty getOutputProperty() {
         return this.output;
     }
     public void setOutput(File value) {
-        this.output = value;
+        this.output.set(value);
     }
 }
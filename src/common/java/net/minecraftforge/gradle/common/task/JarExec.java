@@ -32,23 +32,42 @@ import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.stream.Collectors;
 
+import javax.inject.Inject;
+
 import org.gradle.api.DefaultTask;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
-import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.process.ExecOperations;
 
 import net.minecraftforge.gradle.common.util.MavenArtifactDownloader;
+import net.minecraftforge.gradle.common.util.Profiler;
 
-public class JarExec extends DefaultTask {
+public abstract class JarExec extends DefaultTask {
     private static final OutputStream NULL = new OutputStream() { @Override public void write(int b) throws IOException { } };
     protected boolean hasLog = true;
     protected String tool;
-    private File _tool;
+    // Resolved once, on first read, which is after the tool has been configured. Up to date checks and execution share the result.
+    private final Property<File> _tool = getProject().getObjects().property(File.class)
+            .value(getProject().provider(() -> MavenArtifactDownloader.gradle(getProject(), getTool(), false)));
+    private final File workDir = getProject().file("build/" + getName());
     protected String[] args;
     protected FileCollection classpath = null;
+    private String defaultTool;
+    private String[] defaultArgs;
+
+    public JarExec() {
+        _tool.finalizeValueOnRead();
+    }
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
 
     @TaskAction
     public void apply() throws IOException {
@@ -60,23 +79,23 @@ public class JarExec extends DefaultTask {
         String mainClass = jarFile.getManifest().getMainAttributes().getValue(Attributes.Name.MAIN_CLASS);
         jarFile.close();
 
-        File workDir = getProject().file("build/" + getName());
         if (!workDir.exists()) {
             workDir.mkdirs();
         }
 
         File logFile = new File(workDir, "log.txt");
 
-        try (OutputStream log = hasLog ? new BufferedOutputStream(new FileOutputStream(logFile)) : NULL) {
+        Profiler.count("fork.count", 1);
+        try (OutputStream log = hasLog ? new BufferedOutputStream(new FileOutputStream(logFile)) : NULL;
+             Profiler.Span span = Profiler.start("fork", getName()).arg("main", mainClass)) {
             PrintWriter printer = new PrintWriter(log, true);
-            getProject().javaexec(java -> {
+            getExecOperations().javaexec(java -> {
                 // Execute command
                 java.setArgs(filterArgs());
                 printer.println("Args: " + java.getArgs().stream().map(m -> '"' + m +'"').collect(Collectors.joining(", ")));
-                if (getClasspath() == null)
-                    java.setClasspath(getProject().files(jar));
-                else
-                    java.setClasspath(getProject().files(jar, getClasspath()));
+                java.classpath(jar);
+                if (getClasspath() != null)
+                    java.classpath(getClasspath());
                 java.getClasspath().forEach(f -> printer.println("Classpath: " + f.getAbsolutePath()));
                 java.setWorkingDir(workDir);
                 printer.println("WorkDir: " + workDir);
@@ -105,6 +124,27 @@ public class JarExec extends DefaultTask {
             workDir.delete();
     }
 
+    /**
+     * Sets the tool and arguments, remembering them as the defaults for {@link #isInProcess()}.
+     */
+    protected void defaults(String tool, String[] args) {
+        this.tool = this.defaultTool = tool;
+        this.defaultArgs = args;
+        this.args = args.clone();
+    }
+
+    /**
+     * Whether the tool and arguments are still the defaults, so the task can do the work itself instead of forking the tool.
+     */
+    protected boolean isInProcess() {
+        return isDefault(getTool(), getArgs(), defaultTool, defaultArgs);
+    }
+
+    //Custom arguments may ask the tool for things we don't do ourselves, so only skip it when both are the defaults.
+    public static boolean isDefault(String tool, String[] args, String defaultTool, String[] defaultArgs) {
+        return defaultTool != null && defaultTool.equals(tool) && Arrays.equals(defaultArgs, args);
+    }
+
     protected List<String> filterArgs() {
         return Arrays.asList(getArgs());
     }
@@ -124,11 +164,12 @@ public class JarExec extends DefaultTask {
         this.hasLog = value;
     }
 
+    @Optional
     @InputFile
+    @PathSensitive(PathSensitivity.NONE)
     public File getToolJar() {
-        if (_tool == null)
-            _tool = MavenArtifactDownloader.gradle(getProject(), getTool(), false);
-        return _tool;
+        //Not needed when the task does the work itself, so nothing gets downloaded.
+        return isInProcess() ? null : _tool.get();
     }
 
     @Input
@@ -152,7 +193,7 @@ public class JarExec extends DefaultTask {
     }
 
     @Optional
-    @InputFiles
+    @Classpath
     public FileCollection getClasspath() {
         return this.classpath;
     }
@@ -21,146 +21,98 @@
 package net.minecraftforge.gradle.common.task;
 
 import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ArchiveOperations;
+import org.gradle.api.file.Directory;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.util.PatternFilterable;
 import org.gradle.api.tasks.util.PatternSet;
 
 import com.google.common.base.Strings;
-import com.google.common.collect.Maps;
-import com.google.common.io.ByteStreams;
 import groovy.lang.Closure;
-import groovy.util.MapEntry;
+import net.minecraftforge.gradle.common.util.JarSigner;
 import net.minecraftforge.gradle.common.util.Utils;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Collections;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.jar.JarOutputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
-public class SignJar extends DefaultTask implements PatternFilterable {
+import javax.inject.Inject;
+
+public abstract class SignJar extends DefaultTask implements PatternFilterable {
     private PatternSet patternSet = new PatternSet();
-    private Object     alias;
-    private Object     storePass;
-    private Object     keyPass;
-    private Object     keyStore;
-    private Object     inputFile;
-    private Object     outputFile;
+    private final Property<String> alias = getProject().getObjects().property(String.class);
+    private final Property<String> storePass = getProject().getObjects().property(String.class);
+    private final Property<String> keyPass = getProject().getObjects().property(String.class);
+    private final Property<String> keyStore = getProject().getObjects().property(String.class);
+    private final RegularFileProperty inputFile = getProject().getObjects().fileProperty();
+    private final RegularFileProperty outputFile = getProject().getObjects().fileProperty();
+    private final Directory projectDir = getProject().getLayout().getProjectDirectory();
+
+    public SignJar() {
+        //The setters take anything, closures included, so resolve them once instead of on every read.
+        for (Property<?> prop : new Property<?>[] { alias, storePass, keyPass, keyStore, inputFile, outputFile })
+            prop.finalizeValueOnRead();
+    }
+
+    @Inject
+    protected abstract ArchiveOperations getArchiveOperations();
 
     @TaskAction
-    public void doTask() throws IOException {
-        final Map<String, Entry<byte[], Long>> ignoredStuff = Maps.newHashMap();
+    public void doTask() throws IOException, GeneralSecurityException {
         File input = getInputFile();
-        File toSign = new File(getTemporaryDir(), input.getName() + ".unsigned.tmp");
-        File signed = new File(getTemporaryDir(), input.getName() + ".signed.tmp");
         File output = getOutputFile();
+        String alias = getAlias();
+        String storePass = getStorePass();
 
-        // load in input jar, and create temp jar
-        processInputJar(input, toSign, ignoredStuff);
-
-        // SIGN!
-        Map<String, Object> map = Maps.newHashMap();
-        map.put("alias", getAlias());
-        map.put("storePass", getStorePass());
-        map.put("jar", toSign.getAbsolutePath());
-        map.put("signedJar", signed.getAbsolutePath());
-
-        if (!Strings.isNullOrEmpty(getKeyPass()))
-            map.put("keypass", getKeyPass());
-        if (!Strings.isNullOrEmpty(getKeyStore()))
-            map.put("keyStore", getKeyStore());
-
-        getProject().getAnt().invokeMethod("signjar", map);
+        KeyStore store = KeyStore.getInstance(KeyStore.getDefaultType());
+        File storeFile = Strings.isNullOrEmpty(getKeyStore()) ? new File(System.getProperty("user.home"), ".keystore") : projectDir.file(getKeyStore()).getAsFile();
+        try (InputStream is = new FileInputStream(storeFile)) {
+            store.load(is, storePass.toCharArray());
+        }
 
-        // write out
-        writeOutputJar(signed, output, ignoredStuff);
-    }
+        String pass = Strings.isNullOrEmpty(getKeyPass()) ? storePass : getKeyPass();
+        Key key = store.getKey(alias, pass.toCharArray());
+        Certificate[] chain = store.getCertificateChain(alias);
+        if (!(key instanceof PrivateKey) || chain == null || chain.length == 0)
+            throw new IllegalArgumentException("Could not find private key and certificate for alias " + alias + " in " + storeFile);
 
-    private void processInputJar(File inputJar, File toSign, final Map<String, Entry<byte[], Long>> unsigned) throws IOException {
+        // Only the names are needed to evaluate the patterns, the contents are read straight from the jar when signing.
         final Spec<FileTreeElement> spec = patternSet.getAsSpec();
-
-        toSign.getParentFile().mkdirs();
-        final JarOutputStream outs = new JarOutputStream(new BufferedOutputStream(new FileOutputStream(toSign)));
-
-        getProject().zipTree(inputJar).visit(new FileVisitor() {
+        final Set<String> signed = new HashSet<>();
+        getArchiveOperations().zipTree(input).visit(new FileVisitor() {
             @Override
             public void visitDir(FileVisitDetails details) {
-                try {
-                    String path = details.getPath();
-                    ZipEntry entry = new ZipEntry(path.endsWith("/") ? path : path + "/");
-                    outs.putNextEntry(entry);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
             }
 
             @Override
-            @SuppressWarnings("unchecked")
             public void visitFile(FileVisitDetails details) {
-                try {
-                    if (spec.isSatisfiedBy(details)) {
-                        ZipEntry entry = new ZipEntry(details.getPath());
-                        entry.setTime(details.getLastModified());
-                        outs.putNextEntry(entry);
-                        details.copyTo(outs);
-                        outs.closeEntry();
-                    } else {
-                        InputStream stream = details.open();
-                        unsigned.put(details.getPath(), new MapEntry(ByteStreams.toByteArray(stream), details.getLastModified()));
-                        stream.close();
-                    }
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+                if (spec.isSatisfiedBy(details))
+                    signed.add(details.getPath());
             }
-
         });
 
-        outs.close();
-    }
-
-    private void writeOutputJar(File signedJar, File outputJar, Map<String, Entry<byte[], Long>> unsigned) throws IOException {
-        outputJar.getParentFile().mkdirs();
-
-        JarOutputStream outs = new JarOutputStream(new BufferedOutputStream(new FileOutputStream(outputJar)));
-
-        ZipFile base = new ZipFile(signedJar);
-        for (ZipEntry e : Collections.list(base.entries())) {
-            if (e.isDirectory()) {
-                outs.putNextEntry(e);
-            } else {
-                ZipEntry n = new ZipEntry(e.getName());
-                n.setTime(e.getTime());
-                outs.putNextEntry(n);
-                ByteStreams.copy(base.getInputStream(e), outs);
-                outs.closeEntry();
-            }
-        }
-        base.close();
-
-        for (Map.Entry<String, Map.Entry<byte[], Long>> e : unsigned.entrySet()) {
-            ZipEntry n = new ZipEntry(e.getKey());
-            n.setTime(e.getValue().getValue());
-            outs.putNextEntry(n);
-            outs.write(e.getValue().getKey());
-            outs.closeEntry();
-        }
-
-        outs.close();
+        new JarSigner(alias, (PrivateKey)key, chain).sign(input, output, signed::contains);
     }
 
     @Override
@@ -225,61 +177,90 @@ public class SignJar extends DefaultTask implements PatternFilterable {
         return patternSet.setIncludes(arg0);
     }
 
-    @InputFile
+    @Internal
     public File getInputFile() {
-        if (inputFile == null)
-            return null;
-        return getProject().file(inputFile);
+        return inputFile.getAsFile().getOrNull();
+    }
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getInputFileProperty() {
+        return inputFile;
     }
 
     public void setInputFile(Object inputFile) {
-        this.inputFile = inputFile;
+        this.inputFile.set(getProject().getLayout().file(getProject().provider(() -> getProject().file(inputFile))));
     }
 
-    @OutputFile
+    @Internal
     public File getOutputFile() {
-        if (outputFile == null)
-            return null;
-        return getProject().file(outputFile);
+        return outputFile.getAsFile().getOrNull();
+    }
+
+    @OutputFile
+    public RegularFileProperty getOutputFileProperty() {
+        return outputFile;
     }
 
     public void setOutputFile(Object outputFile) {
-        this.outputFile = outputFile;
+        this.outputFile.set(getProject().getLayout().file(getProject().provider(() -> getProject().file(outputFile))));
     }
 
-    @Input
+    @Internal
     public String getAlias() {
-        return Utils.resolveString(alias);
+        return alias.getOrNull();
+    }
+
+    @Input
+    public Property<String> getAliasProperty() {
+        return alias;
     }
 
     public void setAlias(Object alias) {
-        this.alias = alias;
+        this.alias.set(getProject().provider(() -> Utils.resolveString(alias)));
     }
 
-    @Input
+    @Internal
     public String getStorePass() {
-        return Utils.resolveString(storePass);
+        return storePass.getOrNull();
+    }
+
+    @Input
+    public Property<String> getStorePassProperty() {
+        return storePass;
     }
 
     public void setStorePass(Object storePass) {
-        this.storePass = storePass;
+        this.storePass.set(getProject().provider(() -> Utils.resolveString(storePass)));
     }
 
-    @Input
+    @Internal
     public String getKeyPass() {
-        return Utils.resolveString(keyPass);
+        return keyPass.getOrNull();
+    }
+
+    @Optional
+    @Input
+    public Property<String> getKeyPassProperty() {
+        return keyPass;
     }
 
     public void setKeyPass(Object keyPass) {
-        this.keyPass = keyPass;
+        this.keyPass.set(getProject().provider(() -> Utils.resolveString(keyPass)));
     }
 
-    @Input
+    @Internal
     public String getKeyStore() {
-        return Utils.resolveString(keyStore);
+        return keyStore.getOrNull();
+    }
+
+    @Optional
+    @Input
+    public Property<String> getKeyStoreProperty() {
+        return keyStore;
     }
 
     public void setKeyStore(Object keyStore) {
-        this.keyStore = keyStore;
+        this.keyStore.set(getProject().provider(() -> Utils.resolveString(keyStore)));
     }
 }
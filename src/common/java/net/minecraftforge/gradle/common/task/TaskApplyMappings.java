@@ -23,33 +23,81 @@ package net.minecraftforge.gradle.common.task;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
+import javax.inject.Inject;
+
 import org.apache.commons.io.IOUtils;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.gradle.workers.WorkerExecutor;
 
 import net.minecraftforge.gradle.common.util.McpNames;
 import net.minecraftforge.gradle.common.util.Utils;
 
-public class TaskApplyMappings extends DefaultTask {
-    private boolean javadocs = false;
-    private boolean lambdas = true;
-    private File mappings;
-    private File input;
-    private File output = getProject().file("build/" + getName() + "/output.zip");
+@CacheableTask
+public abstract class TaskApplyMappings extends DefaultTask {
+    private final Property<Boolean> javadocs = getProject().getObjects().property(Boolean.class).convention(false);
+    private final Property<Boolean> lambdas = getProject().getObjects().property(Boolean.class).convention(true);
+    private final RegularFileProperty mappings = getProject().getObjects().fileProperty();
+    private final RegularFileProperty input = getProject().getObjects().fileProperty();
+    private final RegularFileProperty output = getProject().getObjects().fileProperty()
+            .convention(getProject().getLayout().getProjectDirectory().file("build/" + getName() + "/output.zip"));
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
 
     @TaskAction
-    public void apply() throws IOException {
-        McpNames names = McpNames.load(getMappings());
+    public void apply() {
+        getWorkerExecutor().noIsolation().submit(ApplyMappings.class, params -> {
+            params.getJavadocs().set(getJavadocsProperty());
+            params.getLambdas().set(getLambdasProperty());
+            params.getMappings().set(getMappingsProperty());
+            params.getInput().set(getInputProperty());
+            params.getOutput().set(getOutputProperty());
+        });
+    }
 
-        try (ZipFile zin = new ZipFile(getInput())) {
-            try (FileOutputStream fos = new FileOutputStream(getOutput());
+    public interface Parameters extends WorkParameters {
+        Property<Boolean> getJavadocs();
+        Property<Boolean> getLambdas();
+        RegularFileProperty getMappings();
+        RegularFileProperty getInput();
+        RegularFileProperty getOutput();
+    }
+
+    public static abstract class ApplyMappings implements WorkAction<Parameters> {
+        @Override
+        public void execute() {
+            Parameters params = getParameters();
+            try {
+                applyMappings(params.getMappings().get().getAsFile(), params.getInput().get().getAsFile(), params.getOutput().get().getAsFile(),
+                              params.getJavadocs().get(), params.getLambdas().get());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static void applyMappings(File mappings, File input, File output, boolean javadocs, boolean lambdas) throws IOException {
+        McpNames names = McpNames.load(mappings);
+
+        try (ZipFile zin = new ZipFile(input)) {
+            try (FileOutputStream fos = new FileOutputStream(output);
                  ZipOutputStream out = new ZipOutputStream(fos)) {
                 zin.stream().forEach(e -> {
                     try {
@@ -57,7 +105,7 @@ public class TaskApplyMappings extends DefaultTask {
                         if (!e.getName().endsWith(".java")) {
                             IOUtils.copy(zin.getInputStream(e), out);
                         } else {
-                            out.write(names.rename(zin.getInputStream(e), getJavadocs(), getLambdas()).getBytes(StandardCharsets.UTF_8));
+                            out.write(names.rename(zin.getInputStream(e), javadocs, lambdas).getBytes(StandardCharsets.UTF_8));
                         }
                         out.closeEntry();
                     } catch (IOException e1) {
@@ -68,48 +116,70 @@ public class TaskApplyMappings extends DefaultTask {
         }
     }
 
-    @Input
+    @Internal
     public boolean getJavadocs() {
+        return this.javadocs.get();
+    }
+    @Input
+    public Property<Boolean> getJavadocsProperty() {
         return this.javadocs;
     }
 
-    @Input
+    @Internal
     public boolean getLambdas() {
+        return this.lambdas.get();
+    }
+    @Input
+    public Property<Boolean> getLambdasProperty() {
         return this.lambdas;
     }
 
-    @InputFile
+    @Internal
     public File getInput() {
+        return input.getAsFile().getOrNull();
+    }
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getInputProperty() {
         return input;
     }
 
-    @InputFile
+    @Internal
     public File getMappings() {
+        return mappings.getAsFile().getOrNull();
+    }
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getMappingsProperty() {
         return mappings;
     }
 
-    @OutputFile
+    @Internal
     public File getOutput() {
+        return output.getAsFile().getOrNull();
+    }
+    @OutputFile
+    public RegularFileProperty getOutputProperty() {
         return output;
     }
 
     public void setJavadocs(boolean value) {
-        this.javadocs = value;
+        this.javadocs.set(value);
     }
 
     public void setLambdas(boolean value) {
-        this.lambdas = value;
+        this.lambdas.set(value);
     }
 
     public void setInput(File clean) {
-        input = clean;
+        input.set(clean);
     }
 
     public void setMappings(File value) {
-        mappings = value;
+        mappings.set(value);
     }
 
     public void setOutput(File value) {
-        output = value;
+        output.set(value);
     }
 }
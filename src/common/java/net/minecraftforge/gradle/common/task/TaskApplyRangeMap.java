@@ -20,34 +20,41 @@
 
 package net.minecraftforge.gradle.common.task;
 
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import net.minecraftforge.gradle.common.util.Utils;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-public class TaskApplyRangeMap extends JarExec {
+@CacheableTask
+public abstract class TaskApplyRangeMap extends JarExec {
 
     //private Set<String> srgExtra = new HashSet<>(); //TODO: Make S2S read strings easier
     //private Set<String> excExtra = new HashSet<>(); //TODO: Make S2S read strings easier
-    private Set<File> srgs = new HashSet<>();
-    private Set<File> excs = new HashSet<>();
-    private Set<File> sources = new HashSet<>();
+    private final ConfigurableFileCollection srgs = getProject().getObjects().fileCollection();
+    private final ConfigurableFileCollection excs = getProject().getObjects().fileCollection();
+    private final ConfigurableFileCollection sources = getProject().getObjects().fileCollection();
 
-    private File rangeMap;
+    private final RegularFileProperty rangeMap = getProject().getObjects().fileProperty();
     public boolean annotate = false;
     public boolean keepImports = true;
 
-    private File output = getProject().file("build/" + getName() + "/output.zip");
+    private final RegularFileProperty output = getProject().getObjects().fileProperty()
+            .convention(getProject().getLayout().getProjectDirectory().file("build/" + getName() + "/output.zip"));
 
     public TaskApplyRangeMap() {
         tool = Utils.SRG2SOURCE;
@@ -86,14 +93,17 @@ public class TaskApplyRangeMap extends JarExec {
         });
     }
 
-    @InputFiles
+    @Internal
     public Set<File> getSrgFiles() {
+        return this.srgs.getFiles();
+    }
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public ConfigurableFileCollection getSrgFilesProperty() {
         return this.srgs;
     }
     public void setSrgFiles(File... values) {
-        for (File value : values) {
-            this.srgs.add(value);
-        }
+        this.srgs.from((Object[])values);
     }
     /*
     @Input
@@ -107,17 +117,20 @@ public class TaskApplyRangeMap extends JarExec {
     }
     */
 
-    @InputFiles
+    @Internal
     public Set<File> getSources() {
+        return sources.getFiles();
+    }
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public ConfigurableFileCollection getSourcesProperty() {
         return sources;
     }
     public void setSources(Collection<File> values) {
-        this.sources.addAll(values);
+        this.sources.from(values);
     }
     public void setSources(File... values) {
-        for (File value : values) {
-            this.sources.add(value);
-        }
+        this.sources.from((Object[])values);
     }
     public void sources(File... values) {
         setSources(values);
@@ -126,12 +139,17 @@ public class TaskApplyRangeMap extends JarExec {
         setSources(values);
     }
 
-    @InputFile
+    @Internal
     public File getRangeMap() {
+        return rangeMap.getAsFile().getOrNull();
+    }
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getRangeMapProperty() {
         return rangeMap;
     }
     public void setRangeMap(File value) {
-        this.rangeMap = value;
+        this.rangeMap.set(value);
     }
     @Input
     public boolean getAnnotate() {
@@ -148,17 +166,20 @@ public class TaskApplyRangeMap extends JarExec {
         this.keepImports = value;
     }
 
-    @InputFiles
+    @Internal
     public Set<File> getExcFiles() {
+        return excs.getFiles();
+    }
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public ConfigurableFileCollection getExcFilesProperty() {
         return excs;
     }
     public void setExcFiles(File... values) {
-        for (File value : values) {
-            this.excs.add(value);
-        }
+        this.excs.from((Object[])values);
     }
     public void setExcFiles(Collection<File> values) {
-        this.excs.addAll(values);
+        this.excs.from(values);
     }
     /*
     @Input
@@ -172,11 +193,15 @@ public class TaskApplyRangeMap extends JarExec {
     }
     */
 
-    @OutputFile
+    @Internal
     public File getOutput() {
+        return output.getAsFile().getOrNull();
+    }
+    @OutputFile
+    public RegularFileProperty getOutputProperty() {
         return output;
     }
     public void setOutput(File value) {
-        this.output = value;
+        this.output.set(value);
     }
 }
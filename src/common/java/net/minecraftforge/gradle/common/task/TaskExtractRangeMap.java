@@ -35,7 +35,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-public class TaskExtractRangeMap extends JarExec {
+public abstract class TaskExtractRangeMap extends JarExec {
     private Set<File> sources;
     private Set<FileCollection> dependencies = new HashSet<>();
     private File output = getProject().file("build/" + getName() + "/output.txt");
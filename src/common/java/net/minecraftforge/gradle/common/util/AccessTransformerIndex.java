@@ -0,0 +1,283 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.common.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Access transformers, parsed into a per class index and applied in process.
+ * Only classes that are actually targeted are parsed and rewritten, everything else is copied over byte for byte,
+ * so the cost of applying them scales with the number of classes touched, not the size of the jar.
+ */
+public class AccessTransformerIndex {
+    private final Map<String, Target> classes = new HashMap<>();
+
+    public static AccessTransformerIndex load(Collection<File> files, Collection<String> extra) throws IOException {
+        AccessTransformerIndex ret = new AccessTransformerIndex();
+        for (File file : files)
+            ret.parse(file.getAbsolutePath(), Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+        int idx = 0;
+        for (String data : extra)
+            ret.parse("extra_" + idx++, Arrays.asList(data.split("\\r?\\n")));
+        return ret;
+    }
+
+    private void parse(String source, List<String> lines) {
+        for (int x = 0; x < lines.size(); x++) {
+            String line = lines.get(x);
+            int comment = line.indexOf('#');
+            if (comment != -1)
+                line = line.substring(0, comment);
+            line = line.trim();
+            if (line.isEmpty())
+                continue;
+
+            String[] pts = line.split("\\s+");
+            if (pts.length < 2 || pts.length > 3)
+                throw new IllegalArgumentException("Invalid access transformer line " + source + ':' + (x + 1) + ": " + lines.get(x));
+
+            Change change = Change.parse(pts[0]);
+            if (change == null)
+                throw new IllegalArgumentException("Invalid access modifier " + source + ':' + (x + 1) + ": " + pts[0]);
+
+            Target target = classes.computeIfAbsent(pts[1].replace('.', '/'), k -> new Target());
+            if (pts.length == 2) {
+                target.self = Change.merge(target.self, change);
+            } else if ("*".equals(pts[2])) {
+                target.allFields = Change.merge(target.allFields, change);
+            } else if ("*()".equals(pts[2])) {
+                target.allMethods = Change.merge(target.allMethods, change);
+            } else if (pts[2].indexOf('(') != -1) {
+                target.methods.merge(pts[2], change, Change::merge);
+            } else {
+                target.fields.merge(pts[2], change, Change::merge);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return classes.isEmpty();
+    }
+
+    /**
+     * @return Internal names of every class that has at least one transformer targeting it.
+     */
+    public Set<String> getClasses() {
+        return Collections.unmodifiableSet(classes.keySet());
+    }
+
+    public void apply(File input, File output) throws IOException {
+        if (!output.getParentFile().exists())
+            output.getParentFile().mkdirs();
+
+        try (ZipFile zin = new ZipFile(input);
+             ZipOutputStream zout = new ZipOutputStream(new FileOutputStream(output))) {
+            Utils.forZip(zin, entry -> {
+                ZipEntry _new = new ZipEntry(entry.getName());
+                _new.setTime(entry.getTime());
+                zout.putNextEntry(_new);
+                if (!entry.isDirectory()) {
+                    try (InputStream is = zin.getInputStream(entry)) {
+                        Target target = entry.getName().endsWith(".class") ? classes.get(entry.getName().substring(0, entry.getName().length() - 6)) : null;
+                        if (target == null)
+                            IOUtils.copy(is, zout);
+                        else
+                            zout.write(transform(IOUtils.toByteArray(is), target));
+                    }
+                }
+                zout.closeEntry();
+            });
+        }
+    }
+
+    private static byte[] transform(byte[] data, Target target) {
+        ClassReader reader = new ClassReader(data);
+        String className = reader.getClassName();
+
+        //Private methods that are no longer private need to be called virtually, so find them before we visit any code.
+        Set<String> widened = new HashSet<>();
+        reader.accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                if ((access & Opcodes.ACC_PRIVATE) != 0 && (access & Opcodes.ACC_STATIC) == 0 && !"<init>".equals(name)) {
+                    Change change = target.getMethod(name, desc);
+                    if (change != null && (change.apply(access) & Opcodes.ACC_PRIVATE) == 0)
+                        widened.add(name + desc);
+                }
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+        ClassWriter writer = new ClassWriter(reader, 0);
+        reader.accept(new ClassVisitor(Opcodes.ASM9, writer) {
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                super.visit(version, target.self == null ? access : target.self.applyClass(access), name, signature, superName, interfaces);
+            }
+
+            @Override
+            public void visitInnerClass(String name, String outerName, String innerName, int access) {
+                super.visitInnerClass(name, outerName, innerName, target.self != null && name.equals(className) ? target.self.apply(access) : access);
+            }
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+                Change change = target.getField(name);
+                return super.visitField(change == null ? access : change.apply(access), name, desc, signature, value);
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                Change change = target.getMethod(name, desc);
+                MethodVisitor mv = super.visitMethod(change == null ? access : change.apply(access), name, desc, signature, exceptions);
+                if (widened.isEmpty())
+                    return mv;
+                return new MethodVisitor(Opcodes.ASM9, mv) {
+                    @Override
+                    public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+                        if (opcode == Opcodes.INVOKESPECIAL && owner.equals(className) && widened.contains(name + desc))
+                            opcode = itf ? Opcodes.INVOKEINTERFACE : Opcodes.INVOKEVIRTUAL;
+                        super.visitMethodInsn(opcode, owner, name, desc, itf);
+                    }
+                };
+            }
+        }, 0);
+        return writer.toByteArray();
+    }
+
+    private static class Target {
+        private Change self;
+        private Change allFields;
+        private Change allMethods;
+        private final Map<String, Change> fields = new HashMap<>();
+        private final Map<String, Change> methods = new HashMap<>();
+
+        private Change getField(String name) {
+            return Change.merge(allFields, fields.get(name));
+        }
+
+        private Change getMethod(String name, String desc) {
+            return Change.merge(allMethods, methods.get(name + desc));
+        }
+    }
+
+    private enum Access {
+        PRIVATE(Opcodes.ACC_PRIVATE),
+        DEFAULT(0),
+        PROTECTED(Opcodes.ACC_PROTECTED),
+        PUBLIC(Opcodes.ACC_PUBLIC);
+
+        private final int flag;
+
+        private Access(int flag) {
+            this.flag = flag;
+        }
+
+        private static Access of(int access) {
+            if ((access & Opcodes.ACC_PUBLIC) != 0)    return PUBLIC;
+            if ((access & Opcodes.ACC_PROTECTED) != 0) return PROTECTED;
+            if ((access & Opcodes.ACC_PRIVATE) != 0)   return PRIVATE;
+            return DEFAULT;
+        }
+    }
+
+    private enum Final { LEAVE, MAKE, REMOVE }
+
+    private static class Change {
+        private static final int ACCESS_MASK = Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED | Opcodes.ACC_PRIVATE;
+        private final Access access;
+        private final Final fin;
+
+        private Change(Access access, Final fin) {
+            this.access = access;
+            this.fin = fin;
+        }
+
+        private static Change parse(String value) {
+            Final fin = Final.LEAVE;
+            if (value.endsWith("-f")) {
+                fin = Final.REMOVE;
+                value = value.substring(0, value.length() - 2);
+            } else if (value.endsWith("+f")) {
+                fin = Final.MAKE;
+                value = value.substring(0, value.length() - 2);
+            }
+            try {
+                return new Change(Access.valueOf(value.toUpperCase(Locale.ENGLISH)), fin);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        //The most permissive access wins, and removing final beats adding it.
+        private static Change merge(Change a, Change b) {
+            if (a == null) return b;
+            if (b == null) return a;
+            Access access = a.access.compareTo(b.access) >= 0 ? a.access : b.access;
+            Final fin = a.fin.compareTo(b.fin) >= 0 ? a.fin : b.fin;
+            return new Change(access, fin);
+        }
+
+        //Access is only ever widened, never narrowed.
+        private int apply(int value) {
+            if (access.compareTo(Access.of(value)) > 0)
+                value = (value & ~ACCESS_MASK) | access.flag;
+            if (fin == Final.REMOVE)
+                value &= ~Opcodes.ACC_FINAL;
+            else if (fin == Final.MAKE)
+                value |= Opcodes.ACC_FINAL;
+            return value;
+        }
+
+        //Top level classes can only be public or package private.
+        private int applyClass(int value) {
+            int ret = apply(value);
+            if ((ret & (Opcodes.ACC_PROTECTED | Opcodes.ACC_PRIVATE)) != 0)
+                ret = (ret & ~ACCESS_MASK) | ((ret & Opcodes.ACC_PROTECTED) != 0 ? Opcodes.ACC_PUBLIC : 0);
+            return ret;
+        }
+    }
+}
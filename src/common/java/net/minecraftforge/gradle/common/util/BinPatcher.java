@@ -0,0 +1,374 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.common.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Adler32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.nothome.delta.Delta;
+import com.nothome.delta.GDiffPatcher;
+import com.nothome.delta.GDiffWriter;
+
+import lzma.sdk.lzma.Decoder;
+import lzma.streams.LzmaInputStream;
+import lzma.streams.LzmaOutputStream;
+
+/**
+ * In process implementation of BinaryPatcher's binpatch format: an LZMA compressed jar of GDIFF patches, one per class.
+ * Patches are created and applied in parallel.
+ */
+public class BinPatcher {
+    private static final String EXTENSION = ".binpatch";
+    private static final Cache<String, byte[]> DELTAS = CacheBuilder.newBuilder()
+            .softValues()
+            .build();
+
+    /**
+     * Loads every patch in the specified LZMA file, grouped by the class they apply to.
+     * @param prefix Only load patches in this folder, or null to load all of them.
+     */
+    public static Map<String, List<Patch>> load(File file, String prefix) throws IOException {
+        byte[] data;
+        try (InputStream in = new LzmaInputStream(new FileInputStream(file), new Decoder())) {
+            data = IOUtils.toByteArray(in);
+        }
+
+        Map<String, List<Patch>> ret = new LinkedHashMap<>();
+        try (ZipInputStream zin = new ZipInputStream(new ByteArrayInputStream(data))) {
+            ZipEntry entry;
+            while ((entry = zin.getNextEntry()) != null) {
+                String name = entry.getName();
+                if (entry.isDirectory() || !name.endsWith(EXTENSION) || (prefix != null && !name.startsWith(prefix + '/')))
+                    continue;
+                Patch patch = Patch.read(zin);
+                ret.computeIfAbsent(patch.getObf(), k -> new ArrayList<>()).add(patch);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Applies the patches to the clean jar in parallel, verifying the checksum of every class before it's patched.
+     * @param data Copy non-class entries from the clean jar
+     * @param unpatched Copy classes that have no patch from the clean jar
+     */
+    public static void apply(File clean, File output, Map<String, List<Patch>> patches, boolean data, boolean unpatched) throws IOException {
+        if (!output.getParentFile().exists())
+            output.getParentFile().mkdirs();
+
+        try (ZipFile zclean = new ZipFile(clean)) {
+            Map<String, byte[]> patched = new ConcurrentHashMap<>();
+            try {
+                patches.entrySet().parallelStream().forEach(e -> {
+                    ZipEntry entry = zclean.getEntry(e.getKey() + ".class");
+                    try {
+                        byte[] bytes = new byte[0];
+                        if (entry != null) {
+                            try (InputStream is = zclean.getInputStream(entry)) {
+                                bytes = IOUtils.toByteArray(is);
+                            }
+                        }
+                        patched.put(e.getKey(), patch(bytes, e.getValue()));
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            //Written in the same order as the clean jar, followed by any new classes, so the output is stable.
+            Set<String> written = new HashSet<>();
+            try (ZipOutputStream zout = new ZipOutputStream(new FileOutputStream(output))) {
+                Utils.forZip(zclean, entry -> {
+                    String name = entry.getName();
+                    if (entry.isDirectory())
+                        return;
+                    if (name.endsWith(".class")) {
+                        String key = name.substring(0, name.length() - 6);
+                        byte[] bytes = patched.get(key);
+                        if (bytes != null) {
+                            written.add(key);
+                            if (bytes.length != 0) {
+                                zout.putNextEntry(Utils.getStableEntry(name));
+                                zout.write(bytes);
+                                zout.closeEntry();
+                            }
+                            return;
+                        }
+                        if (!unpatched)
+                            return;
+                    } else if (!data) {
+                        return;
+                    }
+
+                    zout.putNextEntry(Utils.getStableEntry(name));
+                    try (InputStream is = zclean.getInputStream(entry)) {
+                        IOUtils.copy(is, zout);
+                    }
+                    zout.closeEntry();
+                });
+
+                for (Map.Entry<String, byte[]> e : new TreeMap<>(patched).entrySet()) {
+                    if (written.contains(e.getKey()) || e.getValue().length == 0)
+                        continue;
+                    zout.putNextEntry(Utils.getStableEntry(e.getKey() + ".class"));
+                    zout.write(e.getValue());
+                    zout.closeEntry();
+                }
+            }
+        }
+    }
+
+    /**
+     * Diffs the clean jar against the dirty one and writes the patches as an LZMA compressed jar.
+     * Classes are diffed in parallel, and the GDIFF data is memoized by the contents of both sides,
+     * so a class that is identical across the joined, client and server jars is only diffed once.
+     *
+     * @param mappings Original names are the names used in the patch sets, mapped names are what's in the jars. May be null.
+     * @param patched Original names of the classes that were patched, or null to diff every class.
+     * @param prefix Folder to write the patches to, or null
+     */
+    public static void create(File clean, File dirty, File output, MappingIndex mappings, Set<String> patched, String prefix) throws IOException {
+        if (!output.getParentFile().exists())
+            output.getParentFile().mkdirs();
+
+        try (ZipFile zclean = new ZipFile(clean);
+             ZipFile zdirty = new ZipFile(dirty)) {
+            //Outer class -> itself and all of its inner classes, in either jar
+            Map<String, Set<String>> entries = new HashMap<>();
+            for (ZipFile zip : new ZipFile[] { zclean, zdirty }) {
+                Utils.forZip(zip, e -> {
+                    if (!e.getName().endsWith(".class"))
+                        return;
+                    String cls = e.getName().substring(0, e.getName().length() - 6);
+                    int idx = cls.indexOf('$');
+                    entries.computeIfAbsent(idx == -1 ? cls : cls.substring(0, idx), k -> new HashSet<>()).add(cls);
+                });
+            }
+
+            List<String> classes = new ArrayList<>();
+            if (patched == null) {
+                entries.values().forEach(classes::addAll);
+            } else {
+                for (String name : patched) {
+                    String obf = mappings == null ? name : mappings.getMappings().remapClass(name);
+                    Set<String> found = entries.get(obf);
+                    if (found == null)
+                        throw new IOException("Could not find any classes for patch " + name + " (" + obf + ")");
+                    classes.addAll(found);
+                }
+            }
+
+            Map<String, byte[]> patches = new ConcurrentHashMap<>();
+            try {
+                classes.parallelStream().forEach(obf -> {
+                    try {
+                        byte[] cleanData = getData(zclean, obf + ".class");
+                        byte[] dirtyData = getData(zdirty, obf + ".class");
+                        if (cleanData == null ? dirtyData == null : Arrays.equals(cleanData, dirtyData))
+                            return;
+
+                        String srg = mappings == null ? null : mappings.getOriginal(obf);
+                        if (srg == null) {
+                            int idx = obf.indexOf('$');
+                            String outer = idx == -1 || mappings == null ? null : mappings.getOriginal(obf.substring(0, idx));
+                            srg = outer == null ? obf : outer + obf.substring(idx);
+                        }
+
+                        Patch patch = Patch.create(obf, srg, cleanData, dirtyData);
+                        patches.put((prefix == null ? "" : prefix + '/') + srg + EXTENSION, patch.toBytes());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            ByteArrayOutputStream jar = new ByteArrayOutputStream();
+            try (ZipOutputStream zout = new ZipOutputStream(jar)) {
+                for (Map.Entry<String, byte[]> e : new TreeMap<>(patches).entrySet()) {
+                    zout.putNextEntry(Utils.getStableEntry(e.getKey()));
+                    zout.write(e.getValue());
+                    zout.closeEntry();
+                }
+            }
+
+            try (OutputStream out = new LzmaOutputStream.Builder(new BufferedOutputStream(new FileOutputStream(output))).useEndMarkerMode(true).build()) {
+                jar.writeTo(out);
+            }
+        }
+    }
+
+    private static byte[] getData(ZipFile zip, String name) throws IOException {
+        ZipEntry entry = zip.getEntry(name);
+        if (entry == null)
+            return null;
+        try (InputStream is = zip.getInputStream(entry)) {
+            return IOUtils.toByteArray(is);
+        }
+    }
+
+    private static byte[] patch(byte[] data, List<Patch> patches) throws IOException {
+        for (Patch patch : patches) {
+            if (patch.exists() && data.length == 0)
+                throw new IOException("Patch expected " + patch.getObf() + " to exist, but received empty data");
+            if (!patch.exists() && data.length > 0)
+                throw new IOException("Patch expected " + patch.getObf() + " to not exist, but received " + data.length + " bytes");
+
+            int checksum = checksum(data);
+            if (patch.exists() && checksum != patch.getChecksum())
+                throw new IOException("Patch expected " + patch.getObf() + " to have the checksum " + Integer.toHexString(patch.getChecksum()) + " but it was " + Integer.toHexString(checksum));
+
+            if (patch.getData().length == 0) { //Class removed
+                data = new byte[0];
+            } else {
+                try {
+                    data = new GDiffPatcher().patch(data, patch.getData());
+                } catch (Exception e) { //PatchException isn't always an IOException
+                    throw new IOException("Failed to apply patch for " + patch.getObf(), e);
+                }
+            }
+        }
+        return data;
+    }
+
+    public static int checksum(byte[] data) {
+        Adler32 hasher = new Adler32();
+        hasher.update(data, 0, data.length);
+        return (int)hasher.getValue();
+    }
+
+    public static class Patch {
+        private final String obf;
+        private final String srg;
+        private final boolean exists;
+        private final int checksum;
+        private final byte[] data;
+
+        private Patch(String obf, String srg, boolean exists, int checksum, byte[] data) {
+            this.obf = obf;
+            this.srg = srg;
+            this.exists = exists;
+            this.checksum = checksum;
+            this.data = data;
+        }
+
+        /**
+         * @param clean Clean class, or null if the class is new
+         * @param dirty Dirty class, or null if the class was removed
+         */
+        public static Patch create(String obf, String srg, byte[] clean, byte[] dirty) throws IOException {
+            byte[] data = new byte[0];
+            if (dirty != null) {
+                byte[] source = clean == null ? new byte[0] : clean;
+                String key = HashFunction.SHA1.hash(source) + ':' + HashFunction.SHA1.hash(dirty);
+                data = DELTAS.getIfPresent(key);
+                if (data == null) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    new Delta().compute(source, dirty, new GDiffWriter(new DataOutputStream(out)));
+                    data = out.toByteArray();
+                    DELTAS.put(key, data);
+                }
+            }
+            return new Patch(obf, srg, clean != null, clean == null ? 0 : checksum(clean), data);
+        }
+
+        public static Patch read(InputStream stream) throws IOException {
+            DataInputStream in = new DataInputStream(stream);
+            int version = in.readByte() & 0xFF;
+            if (version != 1)
+                throw new IOException("Unsupported binpatch version: " + version);
+            String obf = in.readUTF();
+            String srg = in.readUTF();
+            boolean exists = in.readBoolean();
+            int checksum = exists ? in.readInt() : 0;
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            return new Patch(obf, srg, exists, checksum, data);
+        }
+
+        public byte[] toBytes() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length + obf.length() + srg.length() + 16);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(1); //Version
+            out.writeUTF(obf);
+            out.writeUTF(srg);
+            out.writeBoolean(exists);
+            if (exists)
+                out.writeInt(checksum);
+            out.writeInt(data.length); //Removed classes have no data
+            out.write(data);
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        public String getObf() {
+            return this.obf;
+        }
+
+        public String getSrg() {
+            return this.srg;
+        }
+
+        public boolean exists() {
+            return this.exists;
+        }
+
+        public int getChecksum() {
+            return this.checksum;
+        }
+
+        public byte[] getData() {
+            return this.data;
+        }
+    }
+}
@@ -21,16 +21,17 @@
 package net.minecraftforge.gradle.common.util;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
 import java.util.Locale;
-
-import org.apache.commons.io.IOUtils;
+import java.util.Map;
 
 //These are all standard hashing functions the JRE is REQUIRED to have, so add a nice factory that doesnt require catching annoying exceptions;
 public enum HashFunction {
@@ -39,6 +40,10 @@ public enum HashFunction {
     SHA256("SHA-256", 64),
     SHA512("SHA-512", 128);
 
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    //Reused per thread, so hashing never holds a whole file in memory. Heap, not direct, as MessageDigest copies direct buffers into an array anyway.
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(1 << 16));
+
     private String algo;
     private String pad;
 
@@ -60,26 +65,24 @@ public enum HashFunction {
     }
 
     public String hash(File file) throws IOException {
-        try (FileInputStream fin = new FileInputStream(file)) {
-            return hash(fin);
-        }
+        long start = System.nanoTime();
+        MessageDigest hash = get();
+        long total = update(file, hash);
+        Profiler.time("hash", start, total);
+        return toHex(hash.digest());
     }
 
     public String hash(Iterable<File> files) throws IOException {
+        long start = System.nanoTime();
+        long total = 0;
         MessageDigest hash = get();
-        byte[] buf = new byte[1024];
 
         for (File file : files) {
-            if (!file.exists())
-                continue;
-
-            try (FileInputStream fin = new FileInputStream(file)) {
-                int count = -1;
-                while ((count = fin.read(buf)) != -1)
-                    hash.update(buf, 0, count);
-            }
+            if (file.exists())
+                total += update(file, hash);
         }
-        return pad(new BigInteger(1, hash.digest()).toString(16));
+        Profiler.time("hash", start, total);
+        return toHex(hash.digest());
     }
 
     public String hash(String data) {
@@ -87,14 +90,70 @@ public enum HashFunction {
     }
 
     public String hash(InputStream stream) throws IOException {
-        return hash(IOUtils.toByteArray(stream));
+        long start = System.nanoTime();
+        long total = 0;
+        MessageDigest hash = get();
+        byte[] buf = BUFFER.get().array();
+        int count;
+        while ((count = stream.read(buf)) != -1) {
+            hash.update(buf, 0, count);
+            total += count;
+        }
+        Profiler.time("hash", start, total);
+        return toHex(hash.digest());
     }
 
     public String hash(byte[] data) {
-        return pad(new BigInteger(1, get().digest(data)).toString(16));
+        long start = System.nanoTime();
+        String ret = toHex(get().digest(data));
+        Profiler.time("hash", start, data.length);
+        return ret;
     }
 
     public String pad(String hash) {
         return (pad + hash).substring(hash.length());
     }
+
+    /**
+     * Hashes a file with several functions while only reading it once.
+     */
+    public static Map<HashFunction, String> hashAll(File file, HashFunction... functions) throws IOException {
+        long start = System.nanoTime();
+        MessageDigest[] digests = new MessageDigest[functions.length];
+        for (int x = 0; x < functions.length; x++)
+            digests[x] = functions[x].get();
+
+        long total = update(file, digests);
+        Profiler.time("hash", start, total);
+
+        Map<HashFunction, String> ret = new EnumMap<>(HashFunction.class);
+        for (int x = 0; x < functions.length; x++)
+            ret.put(functions[x], toHex(digests[x].digest()));
+        return ret;
+    }
+
+    private static long update(File file, MessageDigest... digests) throws IOException {
+        ByteBuffer buf = BUFFER.get();
+        long total = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buf.clear();
+            while (channel.read(buf) != -1) {
+                buf.flip();
+                for (MessageDigest digest : digests)
+                    digest.update(buf.array(), 0, buf.limit());
+                total += buf.limit();
+                buf.clear();
+            }
+        }
+        return total;
+    }
+
+    private static String toHex(byte[] data) {
+        char[] ret = new char[data.length * 2];
+        for (int x = 0; x < data.length; x++) {
+            ret[x * 2]     = HEX[(data[x] >> 4) & 0xF];
+            ret[x * 2 + 1] = HEX[data[x] & 0xF];
+        }
+        return new String(ret);
+    }
 }
@@ -26,12 +26,36 @@ import org.gradle.api.Project;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
 import java.util.stream.Collectors;
 
 public class HashStore {
+    /**
+     * How entries are fingerprinted. Stores never leave the machine, so the default is the much faster, non cryptographic, xxHash64.
+     * Can be switched back with -Dnet.minecraftforge.gradle.hashstore.fingerprint=sha1
+     */
+    public enum Fingerprint {
+        SHA1 {
+            @Override public String hash(File file) throws IOException { return HashFunction.SHA1.hash(file); }
+            @Override public String hash(byte[] data) { return HashFunction.SHA1.hash(data); }
+        },
+        XXH64 {
+            @Override public String hash(File file) throws IOException { return XXHash64.hash(file); }
+            @Override public String hash(byte[] data) { return XXHash64.hash(data); }
+        };
+
+        public abstract String hash(File file) throws IOException;
+        public abstract String hash(byte[] data);
+    }
+
+    public static final Fingerprint FINGERPRINT = Fingerprint.valueOf(System.getProperty("net.minecraftforge.gradle.hashstore.fingerprint", "xxh64").toUpperCase(Locale.ENGLISH));
+    private static final String HEADER = "#fingerprint=";
+
     private final boolean INVALIDATE_CACHE = System.getProperty("FG_INVALIDATE_CACHE", "false").equals("true");
     private final int RAND_CACHE = new Random().nextInt();
 
@@ -40,6 +64,15 @@ public class HashStore {
     private final Map<String, String> newHashes = new HashMap<>();
     private File target;
 
+    // Stores written by older versions, or with a different fingerprint, are compared using their own fingerprint so that
+    // upgrading doesn't invalidate every cache, and the next save writes the new fingerprint. Inputs added before load are
+    // remembered so they can be hashed that way as well: files by reference, data by its hash with the other fingerprints,
+    // so the data itself isn't held onto.
+    private final Map<String, File> inputFiles = new HashMap<>();
+    private final Map<String, Map<Fingerprint, String>> inputData = new HashMap<>();
+    private final Map<String, String> legacyHashes = new HashMap<>();
+    private Fingerprint loaded = FINGERPRINT;
+
     public HashStore() {
         this.root = "";
     }
@@ -65,32 +98,50 @@ public class HashStore {
     }
 
     public boolean isSame(File file) {
-        try {
-            String path = getPath(file);
-            String hash = oldHashes.get(path);
-            if (hash == null) {
-                if (file.exists()) {
-                    newHashes.put(path, HashFunction.SHA1.hash(file));
-                    return false;
-                }
-                return true;
+        String path = getPath(file);
+        String hash = oldHashes.get(path);
+        if (hash == null) {
+            if (file.exists()) {
+                put(path, file);
+                return false;
             }
-            String fileHash = HashFunction.SHA1.hash(file);
-            newHashes.put(path, fileHash);
-            return fileHash.equals(hash);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            return true;
         }
+        put(path, file);
+        return getHashes().get(path).equals(hash);
     }
 
     public HashStore load(File file) throws IOException {
         this.target = file;
         oldHashes.clear();
+        legacyHashes.clear();
+        loaded = FINGERPRINT;
         if(!file.exists()) return this;
-        for (String line : FileUtils.readLines(file, StandardCharsets.UTF_8)) {
+        List<String> lines = FileUtils.readLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).startsWith(HEADER)) {
+            loaded = Fingerprint.SHA1; //Written before fingerprints were configurable
+        } else {
+            try {
+                loaded = Fingerprint.valueOf(lines.get(0).substring(HEADER.length()));
+            } catch (IllegalArgumentException e) {
+                return this; //Unknown fingerprint, nothing will match so treat it as missing
+            }
+            lines = lines.subList(1, lines.size());
+        }
+        for (String line : lines) {
             String[] split = line.split("=");
             oldHashes.put(split[0], split[1]);
         }
+        if (loaded != FINGERPRINT) {
+            for (Map.Entry<String, File> e : inputFiles.entrySet())
+                legacyHashes.put(e.getKey(), hash(loaded, e.getValue()));
+            for (Map.Entry<String, Map<Fingerprint, String>> e : inputData.entrySet())
+                legacyHashes.put(e.getKey(), e.getValue().get(loaded));
+            if (newHashes.containsKey("CACHE_BUSTER"))
+                legacyHashes.put("CACHE_BUSTER", newHashes.get("CACHE_BUSTER"));
+        }
+        inputFiles.clear();
+        inputData.clear();
         return this;
     }
 
@@ -100,25 +151,24 @@ public class HashStore {
 
     public HashStore bust(int version) {
         newHashes.put("CACHE_BUSTER", Integer.toString(version));
+        legacyHashes.put("CACHE_BUSTER", Integer.toString(version));
+        inputFiles.remove("CACHE_BUSTER");
+        inputData.remove("CACHE_BUSTER");
         return this;
     }
 
     public HashStore add(String key, String data) {
-        newHashes.put(key, HashFunction.SHA1.hash(data));
+        put(key, (data == null ? "" : data).getBytes(StandardCharsets.UTF_8));
         return this;
     }
 
     public HashStore add(String key, byte[] data) {
-        newHashes.put(key, HashFunction.SHA1.hash(data));
+        put(key, data);
         return this;
     }
 
     public HashStore add(String key, File file) {
-        try {
-            newHashes.put(key == null ? getPath(file) : key, HashFunction.SHA1.hash(file));
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        put(key == null ? getPath(file) : key, file);
         return this;
     }
 
@@ -142,7 +192,7 @@ public class HashStore {
     public boolean isSame() {
         if (INVALIDATE_CACHE)
             add("invalidate", "" + RAND_CACHE);
-        return oldHashes.equals(newHashes);
+        return oldHashes.equals(getHashes());
     }
 
     public void save() throws IOException {
@@ -152,7 +202,41 @@ public class HashStore {
         save(target);
     }
     public void save(File file) throws IOException {
-        FileUtils.writeByteArrayToFile(file, newHashes.entrySet().stream().map(e -> e.getKey() + "=" + e.getValue()).collect(Collectors.joining("\n")).getBytes());
+        String data = HEADER + FINGERPRINT.name() + '\n' + newHashes.entrySet().stream().map(e -> e.getKey() + "=" + e.getValue()).collect(Collectors.joining("\n"));
+        FileUtils.writeByteArrayToFile(file, data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Map<String, String> getHashes() {
+        return loaded == FINGERPRINT ? newHashes : legacyHashes;
+    }
+
+    private void put(String key, Object value) {
+        newHashes.put(key, hash(FINGERPRINT, value));
+        if (loaded != FINGERPRINT) {
+            legacyHashes.put(key, hash(loaded, value));
+        } else if (target == null) {
+            //Most callers add their inputs before loading, keep them until then in case it's a legacy store.
+            if (value instanceof File) {
+                inputFiles.put(key, (File)value);
+                inputData.remove(key);
+            } else {
+                Map<Fingerprint, String> hashes = new EnumMap<>(Fingerprint.class);
+                for (Fingerprint fingerprint : Fingerprint.values()) {
+                    if (fingerprint != FINGERPRINT)
+                        hashes.put(fingerprint, hash(fingerprint, value));
+                }
+                inputData.put(key, hashes);
+                inputFiles.remove(key);
+            }
+        }
+    }
+
+    private static String hash(Fingerprint fingerprint, Object value) {
+        try {
+            return value instanceof File ? fingerprint.hash((File)value) : fingerprint.hash((byte[])value);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     private String getPath(File file) {
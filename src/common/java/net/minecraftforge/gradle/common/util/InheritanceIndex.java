@@ -0,0 +1,266 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.common.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Class hierarchy of a set of jars, super class and interfaces only.
+ * Jars are scanned in parallel by reading just the class file header, up to the interface table,
+ * so method bodies are never inflated or parsed. The result for each jar is cached for the life
+ * of the daemon keyed by the jar's SHA1, so a library is only ever scanned once no matter how
+ * many projects or builds ask for it.
+ */
+public class InheritanceIndex {
+    private static final Cache<String, Map<String, Node>> JARS = CacheBuilder.newBuilder()
+            .softValues()
+            .build();
+    // Hashing every library on every lookup adds up, so remember hashes until the file changes on disk.
+    private static final Cache<String, String> HASHES = CacheBuilder.newBuilder()
+            .softValues()
+            .build();
+
+    private final Map<String, Node> nodes = new HashMap<>();
+
+    /**
+     * Builds the hierarchy for the given jars. If a class exists in more then one jar, the first one wins, like a classpath.
+     */
+    public static InheritanceIndex of(Collection<File> jars) throws IOException {
+        List<File> files = jars.stream().filter(File::isFile).collect(Collectors.toList());
+        List<Map<String, Node>> scanned;
+        try {
+            scanned = files.parallelStream().map(file -> {
+                try {
+                    return load(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        InheritanceIndex ret = new InheritanceIndex();
+        for (Map<String, Node> jar : scanned)
+            jar.forEach(ret.nodes::putIfAbsent);
+        return ret;
+    }
+
+    private static Map<String, Node> load(File file) throws IOException {
+        String key = file.getAbsolutePath() + ':' + file.length() + ':' + file.lastModified();
+        String hash = HASHES.getIfPresent(key);
+        if (hash == null) {
+            hash = HashFunction.SHA1.hash(file);
+            HASHES.put(key, hash);
+        }
+
+        try {
+            return JARS.get(hash, () -> scan(file));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException)e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static Map<String, Node> scan(File file) throws IOException {
+        try (ZipFile zip = new ZipFile(file)) {
+            List<ZipEntry> classes = zip.stream()
+                .filter(e -> !e.isDirectory() && e.getName().endsWith(".class") && !e.getName().startsWith("META-INF/"))
+                .collect(Collectors.toList());
+
+            List<Node> nodes = classes.parallelStream().map(e -> {
+                try (InputStream is = zip.getInputStream(e)) {
+                    return read(is);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException("Failed to read class header of " + e.getName() + " in " + file, ex);
+                }
+            }).collect(Collectors.toList());
+
+            Map<String, Node> ret = new HashMap<>();
+            nodes.forEach(n -> ret.putIfAbsent(n.getName(), n));
+            return Collections.unmodifiableMap(ret);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Reads the name, super class and interfaces from a class file, stopping as soon as the interface table has been read.
+     */
+    public static Node read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 4096));
+        if (in.readInt() != 0xCAFEBABE)
+            throw new IOException("Invalid class file magic");
+        in.readUnsignedShort(); //Minor
+        in.readUnsignedShort(); //Major
+
+        int count = in.readUnsignedShort();
+        int[] classes = new int[count];
+        byte[][] utf8 = new byte[count][];
+        for (int x = 1; x < count; x++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    utf8[x] = new byte[in.readUnsignedShort()];
+                    in.readFully(utf8[x]);
+                    break;
+                case 7: // Class
+                    classes[x] = in.readUnsignedShort();
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    in.skipBytes(2);
+                    break;
+                case 15: // MethodHandle
+                    in.skipBytes(3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.skipBytes(4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    in.skipBytes(8);
+                    x++; //Takes two slots
+                    break;
+                default:
+                    throw new IOException("Invalid constant pool tag: " + tag);
+            }
+        }
+
+        in.readUnsignedShort(); //Access
+        String name = getClass(classes, utf8, in.readUnsignedShort());
+        String parent = getClass(classes, utf8, in.readUnsignedShort());
+        String[] interfaces = new String[in.readUnsignedShort()];
+        for (int x = 0; x < interfaces.length; x++)
+            interfaces[x] = getClass(classes, utf8, in.readUnsignedShort());
+
+        return new Node(name, parent, Arrays.asList(interfaces));
+    }
+
+    private static String getClass(int[] classes, byte[][] utf8, int index) throws IOException {
+        if (index == 0)
+            return null;
+        byte[] data = utf8[classes[index]];
+        //Modified UTF-8, let DataInputStream deal with it.
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(data.length + 2);
+        buf.write((data.length >> 8) & 0xFF);
+        buf.write(data.length & 0xFF);
+        buf.write(data);
+        return new DataInputStream(new ByteArrayInputStream(buf.toByteArray())).readUTF();
+    }
+
+    public boolean contains(String cls) {
+        return nodes.containsKey(cls);
+    }
+
+    public Node get(String cls) {
+        return nodes.get(cls);
+    }
+
+    /**
+     * @return The super class followed by the interfaces of the specified class, or an empty list if the class is unknown.
+     */
+    public List<String> getParents(String cls) {
+        Node node = nodes.get(cls);
+        return node == null ? Collections.emptyList() : node.getParents();
+    }
+
+    /**
+     * @return Every known super class and interface of the specified class, walking the entire hierarchy.
+     */
+    public Set<String> getAllParents(String cls) {
+        Set<String> ret = new LinkedHashSet<>();
+        List<String> queue = new ArrayList<>(getParents(cls));
+        while (!queue.isEmpty()) {
+            String next = queue.remove(0);
+            if (ret.add(next))
+                queue.addAll(getParents(next));
+        }
+        return ret;
+    }
+
+    public static class Node {
+        private final String name;
+        private final String parent;
+        private final List<String> interfaces;
+        private final List<String> parents;
+
+        private Node(String name, String parent, List<String> interfaces) {
+            this.name = name;
+            this.parent = parent;
+            this.interfaces = Collections.unmodifiableList(interfaces);
+            List<String> tmp = new ArrayList<>();
+            if (parent != null)
+                tmp.add(parent);
+            tmp.addAll(interfaces);
+            this.parents = Collections.unmodifiableList(tmp);
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public String getParent() {
+            return this.parent;
+        }
+
+        public List<String> getInterfaces() {
+            return this.interfaces;
+        }
+
+        public List<String> getParents() {
+            return this.parents;
+        }
+    }
+}
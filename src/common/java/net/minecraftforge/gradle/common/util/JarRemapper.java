@@ -0,0 +1,534 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.common.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.MethodRemapper;
+import org.objectweb.asm.commons.Remapper;
+
+import net.minecraftforge.srgutils.IMappingFile;
+import net.minecraftforge.srgutils.IMappingFile.IClass;
+import net.minecraftforge.srgutils.IMappingFile.IField;
+import net.minecraftforge.srgutils.IMappingFile.IMethod;
+
+/**
+ * In process replacement for SpecialSource's jar remapping.
+ * Members that are not mapped on their owner are resolved through the class hierarchy,
+ * built from the input jar and the supplied classpath. Class entries are remapped in parallel,
+ * and the output is written in a single pass, in the same order as the input.
+ */
+public class JarRemapper {
+    private final List<IMappingFile> mappings;
+    private final List<File> classpath;
+    private Predicate<String> filter = name -> true;
+    private File cache;
+    private String cacheKey;
+    private final AtomicInteger reused = new AtomicInteger();
+    private final AtomicInteger remappedCount = new AtomicInteger();
+
+    public JarRemapper(IMappingFile mappings, Collection<File> classpath) {
+        this(Collections.singletonList(mappings), classpath);
+    }
+
+    /**
+     * @param mappings Mappings to apply, if more then one mapping file knows about a class/member the first one wins.
+     * @param classpath Libraries used to resolve inherited members, these are not included in the output.
+     */
+    public JarRemapper(List<IMappingFile> mappings, Collection<File> classpath) {
+        this.mappings = new ArrayList<>(mappings);
+        this.classpath = new ArrayList<>(classpath);
+    }
+
+    /**
+     * Only entries in the input whose name matches this filter will be included in the output.
+     */
+    public JarRemapper filter(Predicate<String> value) {
+        this.filter = value;
+        return this;
+    }
+
+    /**
+     * Enables incremental mode. Remapped classes are stored in the cache directory keyed by the SHA1 of their input bytes,
+     * and reused on the next run as long as the mappings and the classpath are unchanged, and every class whose members
+     * were looked up while remapping it still has the same parents.
+     *
+     * @param dir Directory to store the remapped classes in, it is owned by this remapper and stale entries are deleted.
+     * @param key Something that identifies the mappings being applied, typically the hash of the mapping files.
+     */
+    public JarRemapper cache(File dir, String key) {
+        this.cache = dir;
+        this.cacheKey = key;
+        return this;
+    }
+
+    /**
+     * @return The number of classes that were taken from the cache in the last call to {@link #remap(File, File)}
+     */
+    public int getReused() {
+        return reused.get();
+    }
+
+    /**
+     * @return The number of classes that had to be remapped in the last call to {@link #remap(File, File)}
+     */
+    public int getRemapped() {
+        return remappedCount.get();
+    }
+
+    public void remap(File input, File output) throws IOException {
+        reused.set(0);
+        remappedCount.set(0);
+
+        if (!output.getParentFile().exists())
+            output.getParentFile().mkdirs();
+
+        Hierarchy hierarchy = new Hierarchy(classpath);
+        try (ZipFile zin = new ZipFile(input)) {
+            //Directories are kept as they are, same as SpecialSource did.
+            List<ZipEntry> entries = zin.stream().filter(e -> filter.test(e.getName())).collect(Collectors.toList());
+
+            // Read everything first, the hierarchy needs to know about all of the input's classes before we can remap any of them.
+            List<byte[]> data = unwrap(() -> entries.parallelStream().map(e -> {
+                if (e.isDirectory())
+                    return new byte[0];
+                try (InputStream is = zin.getInputStream(e)) {
+                    return IOUtils.toByteArray(is);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }).collect(Collectors.toList()));
+
+            for (int x = 0; x < entries.size(); x++) {
+                if (entries.get(x).getName().endsWith(".class"))
+                    hierarchy.add(data.get(x));
+            }
+
+            ClassCache classCache = this.cache == null ? null : new ClassCache(this.cache, getFingerprint(), hierarchy);
+            MappingRemapper remapper = new MappingRemapper(hierarchy);
+            List<Integer> indexes = new ArrayList<>();
+            for (int x = 0; x < entries.size(); x++)
+                indexes.add(x);
+
+            List<byte[]> remapped = unwrap(() -> indexes.parallelStream()
+                .map(x -> {
+                    if (!entries.get(x).getName().endsWith(".class"))
+                        return data.get(x);
+                    if (classCache == null) {
+                        remappedCount.incrementAndGet();
+                        return remapClass(remapper, data.get(x));
+                    }
+                    return classCache.get(data.get(x), owners -> {
+                        remappedCount.incrementAndGet();
+                        return remapClass(new RecordingRemapper(remapper, owners), data.get(x));
+                    });
+                })
+                .collect(Collectors.toList()));
+
+            if (classCache != null) {
+                reused.set(classCache.hits.get());
+                classCache.prune();
+            }
+
+            try (ZipOutputStream zout = new ZipOutputStream(new FileOutputStream(output))) {
+                for (int x = 0; x < entries.size(); x++) {
+                    ZipEntry entry = entries.get(x);
+                    String name = entry.getName();
+                    if (name.endsWith(".class"))
+                        name = remapper.map(name.substring(0, name.length() - 6)) + ".class";
+
+                    ZipEntry _new = new ZipEntry(name);
+                    _new.setTime(entry.getTime());
+                    zout.putNextEntry(_new);
+                    zout.write(remapped.get(x));
+                    zout.closeEntry();
+                }
+            }
+        }
+    }
+
+    /*
+     * Anything that can change the output of every class: The mappings and the libraries. Libraries are identified
+     * by path, size and timestamp so that we don't have to hash the entire classpath on every run.
+     * Changes to the input's own hierarchy are tracked per class, see ClassCache.
+     */
+    private String getFingerprint() {
+        StringBuilder buf = new StringBuilder();
+        buf.append(cacheKey).append('\n');
+        for (File file : classpath)
+            buf.append(file.getAbsolutePath()).append(':').append(file.length()).append(':').append(file.lastModified()).append('\n');
+        return HashFunction.SHA1.hash(buf.toString());
+    }
+
+    private byte[] remapClass(Remapper remapper, byte[] data) {
+        ClassReader reader = new ClassReader(data);
+        ClassWriter writer = new ClassWriter(0);
+        reader.accept(new LambdaClassRemapper(writer, remapper), 0);
+        return writer.toByteArray();
+    }
+
+    /*
+     * ASM only gives the Remapper the name and descriptor of an invokedynamic, which isn't enough to know what
+     * the name refers to. For lambdas the name is the functional interface's method, so resolve it the same way
+     * SpecialSource does: Owner is the type the call site returns, and the descriptor is the erased SAM type.
+     */
+    private static class LambdaClassRemapper extends ClassRemapper {
+        private static final String LAMBDA_METAFACTORY = "java/lang/invoke/LambdaMetafactory";
+
+        private LambdaClassRemapper(ClassWriter writer, Remapper remapper) {
+            super(writer, remapper);
+        }
+
+        @Override
+        protected MethodVisitor createMethodRemapper(MethodVisitor mv) {
+            return new MethodRemapper(api, mv, remapper) {
+                @Override
+                public void visitInvokeDynamicInsn(String name, String descriptor, Handle bsm, Object... bsmArgs) {
+                    if (LAMBDA_METAFACTORY.equals(bsm.getOwner()) && bsmArgs.length > 0 && bsmArgs[0] instanceof Type) {
+                        String owner = Type.getReturnType(descriptor).getInternalName();
+                        name = remapper.mapMethodName(owner, name, ((Type)bsmArgs[0]).getDescriptor());
+                    }
+                    super.visitInvokeDynamicInsn(name, descriptor, bsm, bsmArgs);
+                }
+            };
+        }
+    }
+
+    private static <T> T unwrap(Supplier<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /*
+     * Remembers every owner whose members were looked up, as the result of those lookups depends on that owner's parents.
+     */
+    private static class RecordingRemapper extends Remapper {
+        private final Remapper parent;
+        private final Set<String> owners;
+
+        private RecordingRemapper(Remapper parent, Set<String> owners) {
+            this.parent = parent;
+            this.owners = owners;
+        }
+
+        @Override
+        public String map(String name) {
+            return parent.map(name);
+        }
+
+        @Override
+        public String mapMethodName(String owner, String name, String descriptor) {
+            owners.add(owner);
+            return parent.mapMethodName(owner, name, descriptor);
+        }
+
+        @Override
+        public String mapFieldName(String owner, String name, String descriptor) {
+            owners.add(owner);
+            return parent.mapFieldName(owner, name, descriptor);
+        }
+
+        @Override
+        public String mapRecordComponentName(String owner, String name, String descriptor) {
+            owners.add(owner);
+            return parent.mapRecordComponentName(owner, name, descriptor);
+        }
+    }
+
+    private class MappingRemapper extends Remapper {
+        private final Hierarchy hierarchy;
+        private final Map<String, String> classes = new ConcurrentHashMap<>();
+        private final Map<String, String> methods = new ConcurrentHashMap<>();
+        private final Map<String, String> fields = new ConcurrentHashMap<>();
+
+        private MappingRemapper(Hierarchy hierarchy) {
+            this.hierarchy = hierarchy;
+        }
+
+        @Override
+        public String map(String name) {
+            String ret = classes.get(name);
+            if (ret == null) {
+                ret = mapClass(name);
+                classes.put(name, ret);
+            }
+            return ret;
+        }
+
+        private String mapClass(String name) {
+            for (IMappingFile map : mappings) {
+                IClass cls = map.getClass(name);
+                if (cls != null)
+                    return cls.getMapped();
+            }
+            int idx = name.lastIndexOf('$');
+            if (idx != -1)
+                return map(name.substring(0, idx)) + name.substring(idx);
+            return name;
+        }
+
+        @Override
+        public String mapMethodName(String owner, String name, String descriptor) {
+            if (name.startsWith("<") || owner.startsWith("["))
+                return name;
+            String key = owner + '.' + name + descriptor;
+            String ret = methods.get(key);
+            if (ret == null) {
+                ret = findMethod(owner, name, descriptor);
+                methods.put(key, ret == null ? name : ret);
+                return ret == null ? name : ret;
+            }
+            return ret;
+        }
+
+        private String findMethod(String owner, String name, String descriptor) {
+            for (IMappingFile map : mappings) {
+                IClass cls = map.getClass(owner);
+                IMethod mtd = cls == null ? null : cls.getMethod(name, descriptor);
+                if (mtd != null)
+                    return mtd.getMapped();
+            }
+            for (String parent : hierarchy.getParents(owner)) {
+                String ret = findMethod(parent, name, descriptor);
+                if (ret != null)
+                    return ret;
+            }
+            return null;
+        }
+
+        @Override
+        public String mapFieldName(String owner, String name, String descriptor) {
+            String key = owner + '.' + name;
+            String ret = fields.get(key);
+            if (ret == null) {
+                ret = findField(owner, name);
+                fields.put(key, ret == null ? name : ret);
+                return ret == null ? name : ret;
+            }
+            return ret;
+        }
+
+        private String findField(String owner, String name) {
+            for (IMappingFile map : mappings) {
+                IClass cls = map.getClass(owner);
+                IField fld = cls == null ? null : cls.getField(name);
+                if (fld != null)
+                    return fld.getMapped();
+            }
+            for (String parent : hierarchy.getParents(owner)) {
+                String ret = findField(parent, name);
+                if (ret != null)
+                    return ret;
+            }
+            return null;
+        }
+
+        @Override
+        public String mapRecordComponentName(String owner, String name, String descriptor) {
+            return mapFieldName(owner, name, descriptor);
+        }
+    }
+
+    /**
+     * Super class and interfaces of every class we know about. Input classes are added up front,
+     * anything else comes from the shared {@link InheritanceIndex} of the classpath.
+     */
+    private static class Hierarchy {
+        private final Map<String, List<String>> parents = new ConcurrentHashMap<>();
+        private final Map<String, String> chains = new ConcurrentHashMap<>();
+        private final InheritanceIndex libraries;
+
+        private Hierarchy(List<File> classpath) throws IOException {
+            this.libraries = InheritanceIndex.of(classpath);
+        }
+
+        private void add(byte[] data) throws IOException {
+            InheritanceIndex.Node node = InheritanceIndex.read(new ByteArrayInputStream(data));
+            parents.put(node.getName(), node.getParents());
+        }
+
+        private List<String> getParents(String cls) {
+            List<String> ret = parents.get(cls);
+            return ret != null ? ret : libraries.getParents(cls);
+        }
+
+        /*
+         * SHA1 of every class above this one, and their parents. This is everything a member lookup on this class can see.
+         */
+        private String getChain(String cls) {
+            String ret = chains.get(cls);
+            if (ret == null) {
+                StringBuilder buf = new StringBuilder();
+                Set<String> seen = new HashSet<>();
+                Deque<String> queue = new ArrayDeque<>();
+                queue.add(cls);
+                while (!queue.isEmpty()) {
+                    String name = queue.poll();
+                    if (!seen.add(name))
+                        continue;
+                    List<String> parents = getParents(name);
+                    buf.append(name).append(':').append(String.join(",", parents)).append('\n');
+                    queue.addAll(parents);
+                }
+                ret = HashFunction.SHA1.hash(buf.toString());
+                chains.put(cls, ret);
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * Directory of remapped classes, named by the SHA1 of the class they were remapped from.
+     * Next to each class is a list of the owners it looked up members on, and the parent chain each of them had at the time.
+     * An entry is only reused if all of those chains are unchanged, so adding or removing unrelated classes keeps the cache.
+     * The whole directory is thrown away when the mappings or classpath change.
+     */
+    private static class ClassCache {
+        private static final long STALE_TEMP = TimeUnit.HOURS.toMillis(1);
+        private final File root;
+        private final Hierarchy hierarchy;
+        private final Set<String> used = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger hits = new AtomicInteger();
+
+        private ClassCache(File root, String fingerprint, Hierarchy hierarchy) throws IOException {
+            this.root = root;
+            this.hierarchy = hierarchy;
+            File key = new File(root, "fingerprint.txt");
+            if (!key.exists() || !fingerprint.equals(new String(Files.readAllBytes(key.toPath()), StandardCharsets.UTF_8))) {
+                if (root.exists())
+                    FileUtils.deleteDirectory(root);
+                root.mkdirs();
+                write(key, fingerprint.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        private byte[] get(byte[] input, Function<Set<String>, byte[]> remap) {
+            String hash = HashFunction.SHA1.hash(input);
+            File target = new File(root, hash + ".class");
+            File deps = new File(root, hash + ".deps");
+            used.add(target.getName());
+            used.add(deps.getName());
+            try {
+                if (target.exists() && deps.exists() && isValid(deps)) {
+                    hits.incrementAndGet();
+                    return Files.readAllBytes(target.toPath());
+                }
+                Set<String> owners = new TreeSet<>();
+                byte[] ret = remap.apply(owners);
+
+                StringBuilder buf = new StringBuilder();
+                for (String owner : owners)
+                    buf.append(owner).append(' ').append(hierarchy.getChain(owner)).append('\n');
+                //Class first, so a deps file never points at a missing or stale class.
+                write(target, ret);
+                write(deps, buf.toString().getBytes(StandardCharsets.UTF_8));
+                return ret;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private boolean isValid(File deps) throws IOException {
+            for (String line : Files.readAllLines(deps.toPath(), StandardCharsets.UTF_8)) {
+                int idx = line.indexOf(' ');
+                if (idx == -1 || !hierarchy.getChain(line.substring(0, idx)).equals(line.substring(idx + 1)))
+                    return false;
+            }
+            return true;
+        }
+
+        /*
+         * Other threads, or another build sharing this directory, must never see a half written file.
+         */
+        private void write(File target, byte[] data) throws IOException {
+            Path temp = Files.createTempFile(root.toPath(), target.getName(), ".tmp");
+            try {
+                Files.write(temp, data);
+                try {
+                    Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        /*
+         * Our own temp files are gone by now, see write. Any others may belong to another build that's still writing,
+         * so only the ones old enough to have been left behind by a build that died are removed.
+         */
+        private void prune() {
+            long stale = System.currentTimeMillis() - STALE_TEMP;
+            File[] files = root.listFiles(file -> {
+                String name = file.getName();
+                if (name.endsWith(".tmp"))
+                    return file.lastModified() < stale;
+                return (name.endsWith(".class") || name.endsWith(".deps")) && !used.contains(name);
+            });
+            if (files != null) {
+                for (File file : files)
+                    file.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.common.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Signs a jar the same way jarsigner does, SHA-256 digests with a PKCS#7 signature block, without going through Ant.
+ * Only entries accepted by the filter are signed, everything else is copied as is.
+ * The input is read once, each entry is digested as it's copied, and the manifest and signature files are written
+ * at the end, so nothing is buffered in memory besides the manifest itself. JarFile and the class loaders find them
+ * through the central directory, JarInputStream only looks at the start of the jar so won't see them.
+ */
+public class JarSigner {
+    private static final String DIGEST = "SHA-256";
+    private static final String DIGEST_ATTRIBUTE = DIGEST + "-Digest";
+
+    private final String name;
+    private final PrivateKey key;
+    private final X509Certificate[] chain;
+
+    public JarSigner(String alias, PrivateKey key, Certificate[] chain) {
+        //Same rules as jarsigner, upper case, only [A-Z0-9_-], and at most 8 characters
+        String name = alias.toUpperCase(Locale.ENGLISH).replaceAll("[^A-Z0-9_-]", "_");
+        this.name = name.length() > 8 ? name.substring(0, 8) : name;
+        this.key = key;
+        this.chain = new X509Certificate[chain.length];
+        for (int x = 0; x < chain.length; x++)
+            this.chain[x] = (X509Certificate)chain[x];
+    }
+
+    public void sign(File input, File output, Predicate<String> filter) throws IOException, GeneralSecurityException {
+        if (!output.getParentFile().exists())
+            output.getParentFile().mkdirs();
+
+        String sfName = "META-INF/" + name + ".SF";
+        String blockName = "META-INF/" + name + '.' + key.getAlgorithm().toUpperCase(Locale.ENGLISH);
+
+        try (ZipFile zin = new ZipFile(input);
+             ZipOutputStream zout = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(output)))) {
+            Manifest existing = new Manifest();
+            ZipEntry mfEntry = zin.getEntry(JarFile.MANIFEST_NAME);
+            if (mfEntry != null) {
+                try (InputStream is = zin.getInputStream(mfEntry)) {
+                    existing.read(is);
+                }
+            }
+
+            //Every entry is read once, digested on its way into the output.
+            Map<String, String> digests = new LinkedHashMap<>();
+            MessageDigest md = MessageDigest.getInstance(DIGEST);
+            byte[] buf = new byte[8192];
+            Utils.forZip(zin, e -> {
+                String name = e.getName();
+                if (JarFile.MANIFEST_NAME.equalsIgnoreCase(name) || name.equalsIgnoreCase(sfName) || name.equalsIgnoreCase(blockName))
+                    return;
+                boolean sign = !e.isDirectory() && !isSignatureRelated(name) && filter.test(name);
+                ZipEntry _new = new ZipEntry(name);
+                _new.setTime(e.getTime());
+                zout.putNextEntry(_new);
+                if (!e.isDirectory()) {
+                    try (InputStream is = zin.getInputStream(e)) {
+                        int len;
+                        while ((len = is.read(buf)) != -1) {
+                            zout.write(buf, 0, len);
+                            if (sign)
+                                md.update(buf, 0, len);
+                        }
+                    }
+                }
+                zout.closeEntry();
+                if (sign)
+                    digests.put(name, Base64.getEncoder().encodeToString(md.digest()));
+            });
+
+            //Build the manifest by hand, the signature file needs the exact bytes of every section.
+            ByteArrayOutputStream manifest = new ByteArrayOutputStream();
+            Attributes main = existing.getMainAttributes();
+            String version = main.getValue(Attributes.Name.MANIFEST_VERSION);
+            writeLine(manifest, Attributes.Name.MANIFEST_VERSION + ": " + (version == null ? "1.0" : version));
+            writeAttributes(manifest, main);
+            writeLine(manifest, "");
+            byte[] mainSection = manifest.toByteArray();
+
+            Map<String, byte[]> sections = new LinkedHashMap<>();
+            Map<String, Attributes> others = new LinkedHashMap<>(existing.getEntries());
+            for (Map.Entry<String, String> e : digests.entrySet()) {
+                ByteArrayOutputStream section = new ByteArrayOutputStream();
+                writeLine(section, "Name: " + e.getKey());
+                Attributes attrs = others.remove(e.getKey());
+                if (attrs != null)
+                    writeAttributes(section, attrs);
+                writeLine(section, DIGEST_ATTRIBUTE + ": " + e.getValue());
+                writeLine(section, "");
+                sections.put(e.getKey(), section.toByteArray());
+                section.writeTo(manifest);
+            }
+            for (Map.Entry<String, Attributes> e : others.entrySet()) {
+                writeLine(manifest, "Name: " + e.getKey());
+                writeAttributes(manifest, e.getValue());
+                writeLine(manifest, "");
+            }
+            byte[] manifestData = manifest.toByteArray();
+
+            ByteArrayOutputStream sf = new ByteArrayOutputStream();
+            writeLine(sf, "Signature-Version: 1.0");
+            writeLine(sf, DIGEST + "-Digest-Manifest-Main-Attributes: " + digest(mainSection));
+            writeLine(sf, DIGEST + "-Digest-Manifest: " + digest(manifestData));
+            writeLine(sf, "Created-By: ForgeGradle");
+            writeLine(sf, "");
+            for (Map.Entry<String, byte[]> e : sections.entrySet()) {
+                writeLine(sf, "Name: " + e.getKey());
+                writeLine(sf, DIGEST_ATTRIBUTE + ": " + digest(e.getValue()));
+                writeLine(sf, "");
+            }
+            byte[] sfData = sf.toByteArray();
+
+            writeEntry(zout, JarFile.MANIFEST_NAME, manifestData, mfEntry == null ? -1 : mfEntry.getTime());
+            writeEntry(zout, sfName, sfData, -1);
+            writeEntry(zout, blockName, createBlock(sfData), -1);
+        }
+    }
+
+    private static boolean isSignatureRelated(String name) {
+        String upper = name.toUpperCase(Locale.ENGLISH);
+        if (!upper.startsWith("META-INF/") || upper.indexOf('/', 9) != -1)
+            return false;
+        return upper.equals(JarFile.MANIFEST_NAME) || upper.endsWith(".SF") || upper.endsWith(".RSA") ||
+               upper.endsWith(".DSA") || upper.endsWith(".EC") || upper.startsWith("META-INF/SIG-");
+    }
+
+    private static void writeEntry(ZipOutputStream zout, String name, byte[] data, long time) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        if (time != -1)
+            entry.setTime(time);
+        zout.putNextEntry(entry);
+        zout.write(data);
+        zout.closeEntry();
+    }
+
+    private static void writeAttributes(ByteArrayOutputStream out, Attributes attrs) {
+        for (Map.Entry<Object, Object> e : attrs.entrySet()) {
+            String key = e.getKey().toString();
+            if (Attributes.Name.MANIFEST_VERSION.toString().equalsIgnoreCase(key) || key.endsWith("-Digest"))
+                continue;
+            writeLine(out, key + ": " + e.getValue());
+        }
+    }
+
+    //Manifest lines can be at most 72 bytes, anything longer continues on the next line after a single space.
+    private static void writeLine(ByteArrayOutputStream out, String line) {
+        byte[] data = line.getBytes(StandardCharsets.UTF_8);
+        int offset = 0;
+        int max = 72;
+        while (data.length - offset > max) {
+            int len = max;
+            while ((data[offset + len] & 0xC0) == 0x80) //Don't split UTF-8 characters
+                len--;
+            out.write(data, offset, len);
+            out.write('\r');
+            out.write('\n');
+            out.write(' ');
+            offset += len;
+            max = 71;
+        }
+        out.write(data, offset, data.length - offset);
+        out.write('\r');
+        out.write('\n');
+    }
+
+    private static String digest(byte[] data) throws NoSuchAlgorithmException {
+        return Base64.getEncoder().encodeToString(MessageDigest.getInstance(DIGEST).digest(data));
+    }
+
+    /**
+     * Detached PKCS#7 SignedData over the signature file, with no authenticated attributes, which is what jarsigner writes for a plain signature.
+     */
+    private byte[] createBlock(byte[] sfData) throws GeneralSecurityException, IOException {
+        String keyAlg = key.getAlgorithm().toUpperCase(Locale.ENGLISH);
+        byte[] encryptionAlg;
+        String signatureAlg;
+        switch (keyAlg) {
+            case "RSA": encryptionAlg = der(0x30, oid("1.2.840.113549.1.1.1"), NULL); signatureAlg = "SHA256withRSA"; break;
+            case "DSA": encryptionAlg = der(0x30, oid("1.2.840.10040.4.1"));          signatureAlg = "SHA256withDSA"; break;
+            case "EC":  encryptionAlg = der(0x30, oid("1.2.840.10045.2.1"));          signatureAlg = "SHA256withECDSA"; break;
+            default: throw new GeneralSecurityException("Unsupported key algorithm: " + key.getAlgorithm());
+        }
+
+        Signature signer = Signature.getInstance(signatureAlg);
+        signer.initSign(key);
+        signer.update(sfData);
+        byte[] signature = signer.sign();
+
+        byte[] digestAlg = der(0x30, oid("2.16.840.1.101.3.4.2.1"), NULL);
+        X509Certificate cert = chain[0];
+
+        List<byte[]> certs = new ArrayList<>();
+        for (X509Certificate c : chain)
+            certs.add(c.getEncoded());
+
+        byte[] signerInfo = der(0x30,
+            integer(BigInteger.ONE),
+            der(0x30, cert.getIssuerX500Principal().getEncoded(), integer(cert.getSerialNumber())),
+            digestAlg,
+            encryptionAlg,
+            der(0x04, signature)
+        );
+
+        byte[] signedData = der(0x30,
+            integer(BigInteger.ONE),
+            der(0x31, digestAlg),
+            der(0x30, oid("1.2.840.113549.1.7.1")),
+            der(0xA0, certs.toArray(new byte[0][])),
+            der(0x31, signerInfo)
+        );
+
+        return der(0x30, oid("1.2.840.113549.1.7.2"), der(0xA0, signedData));
+    }
+
+    private static final byte[] NULL = new byte[] { 0x05, 0x00 };
+
+    private static byte[] integer(BigInteger value) throws IOException {
+        return der(0x02, value.toByteArray());
+    }
+
+    private static byte[] oid(String value) throws IOException {
+        String[] pts = value.split("\\.");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(Integer.parseInt(pts[0]) * 40 + Integer.parseInt(pts[1]));
+        for (int x = 2; x < pts.length; x++) {
+            long part = Long.parseLong(pts[x]);
+            int shift = 63 - Long.numberOfLeadingZeros(part | 1);
+            for (int bits = shift / 7 * 7; bits > 0; bits -= 7)
+                out.write((int)((part >>> bits) & 0x7F) | 0x80);
+            out.write((int)(part & 0x7F));
+        }
+        return der(0x06, out.toByteArray());
+    }
+
+    private static byte[] der(int tag, byte[]... contents) throws IOException {
+        int length = 0;
+        for (byte[] data : contents)
+            length += data.length;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length + 6);
+        out.write(tag);
+        if (length < 0x80) {
+            out.write(length);
+        } else {
+            int bytes = (32 - Integer.numberOfLeadingZeros(length) + 7) / 8;
+            out.write(0x80 | bytes);
+            for (int x = bytes - 1; x >= 0; x--)
+                out.write((length >>> (x * 8)) & 0xFF);
+        }
+        for (byte[] data : contents)
+            out.write(data);
+        return out.toByteArray();
+    }
+}
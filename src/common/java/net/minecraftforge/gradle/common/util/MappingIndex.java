@@ -0,0 +1,145 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.common.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import net.minecraftforge.srgutils.IMappingFile;
+
+/**
+ * Parsed view of a SRG/TSRG mapping file with the lookup tables our tasks need prebuilt.
+ * Instances are cached for the life of the daemon, keyed by the SHA1 of the file contents,
+ * so every task that needs the same mappings only pays the parse cost once per build.
+ */
+public class MappingIndex {
+    private static final Cache<String, MappingIndex> CACHE = CacheBuilder.newBuilder()
+            .softValues()
+            .build();
+
+    private final String hash;
+    private final IMappingFile mappings;
+    private final Set<String> classes = new HashSet<>();
+    private final Set<String> mappedClasses = new HashSet<>();
+    private final Set<String> packages = new HashSet<>();
+    private final Map<String, String> reverse = new HashMap<>();
+
+    public static MappingIndex load(File file) throws IOException {
+        return load(Files.readAllBytes(file.toPath()));
+    }
+
+    public static MappingIndex load(InputStream stream) throws IOException {
+        return load(IOUtils.toByteArray(stream));
+    }
+
+    public static MappingIndex load(byte[] data) throws IOException {
+        String hash = HashFunction.SHA1.hash(data);
+        try {
+            return CACHE.get(hash, () -> new MappingIndex(hash, IMappingFile.load(new ByteArrayInputStream(data))));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException)e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    //Forgets every parsed mapping file, so the next load parses it again. Only for the benchmarks, through MappingIndexHook in the jmh source set.
+    static void clearCache() {
+        CACHE.invalidateAll();
+    }
+
+    private MappingIndex(String hash, IMappingFile mappings) {
+        this.hash = hash;
+        this.mappings = mappings;
+
+        for (IMappingFile.IPackage pkg : mappings.getPackages())
+            addPackage(pkg.getOriginal());
+
+        for (IMappingFile.IClass cls : mappings.getClasses()) {
+            classes.add(cls.getOriginal());
+            mappedClasses.add(cls.getMapped());
+            reverse.put(cls.getMapped(), cls.getOriginal());
+
+            int idx = cls.getOriginal().lastIndexOf('/');
+            if (idx != -1)
+                addPackage(cls.getOriginal().substring(0, idx));
+        }
+    }
+
+    private void addPackage(String name) {
+        if (name.endsWith("/"))
+            name = name.substring(0, name.length() - 1);
+        if (!name.isEmpty() && !".".equals(name))
+            packages.add(name);
+    }
+
+    public String getHash() {
+        return this.hash;
+    }
+
+    public IMappingFile getMappings() {
+        return this.mappings;
+    }
+
+    /**
+     * @return Unmodifiable set of all class names on the original side of the mappings.
+     */
+    public Set<String> getClasses() {
+        return Collections.unmodifiableSet(this.classes);
+    }
+
+    /**
+     * @return Unmodifiable set of all class names on the mapped side of the mappings.
+     */
+    public Set<String> getMappedClasses() {
+        return Collections.unmodifiableSet(this.mappedClasses);
+    }
+
+    /**
+     * @return Unmodifiable set of the original side packages, in internal form with no trailing slash. Ex: net/minecraft/client
+     */
+    public Set<String> getPackages() {
+        return Collections.unmodifiableSet(this.packages);
+    }
+
+    /**
+     * Looks up the original name of a mapped class.
+     * @param mapped Mapped internal class name
+     * @return The original name, or null if the class is not in the mappings.
+     */
+    public String getOriginal(String mapped) {
+        return this.reverse.get(mapped);
+    }
+}
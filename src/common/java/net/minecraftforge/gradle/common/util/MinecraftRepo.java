@@ -27,11 +27,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.Enumeration;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -48,7 +45,6 @@ import net.minecraftforge.artifactural.base.repository.ArtifactProviderBuilder;
 import net.minecraftforge.artifactural.base.repository.SimpleRepository;
 import net.minecraftforge.artifactural.gradle.GradleRepositoryAdapter;
 import com.google.common.base.Joiner;
-import com.google.common.base.Strings;
 
 import net.minecraftforge.gradle.common.config.MCPConfigV1;
 import net.minecraftforge.gradle.common.config.MCPConfigV2;
@@ -314,13 +310,7 @@ public class MinecraftRepo extends BaseRepo {
              FileOutputStream fos = new FileOutputStream(output);
              ZipOutputStream out = new ZipOutputStream(fos)) {
 
-            Set<String> whitelist = new HashSet<>();
-            List<String> lines = Utils.lines(mappings).map(line -> line.split("#")[0]).filter(l -> !Strings.isNullOrEmpty(l.trim())).collect(Collectors.toList()); //Strip comments and empty lines
-            lines.stream()
-            .filter(line -> !line.startsWith("\t") || (line.indexOf(':') != -1 && line.startsWith("CL:"))) // Class lines only
-            .map(line -> line.indexOf(':') != -1 ? line.substring(4).split(" ") : line.split(" ")) //Convert to: OBF SRG
-            .filter(pts -> pts.length == 2 && !pts[0].endsWith("/")) //Skip packages
-            .forEach(pts -> whitelist.add(pts[0]));
+            Set<String> whitelist = MappingIndex.load(mappings).getClasses();
 
             for (Enumeration<? extends ZipEntry> entries = zin.entries(); entries.hasMoreElements();) {
                 ZipEntry entry = entries.nextElement();
@@ -0,0 +1,307 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.common.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+import org.gradle.api.Project;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.build.event.BuildEventsListenerRegistry;
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationCompletionListener;
+import org.gradle.tooling.events.OperationResult;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Lightweight build profiler, enabled with -Dfg.profile=true.
+ * Records timed spans and counters, and at the end of the build writes a Chrome trace (chrome://tracing, or ui.perfetto.dev)
+ * to build/fg_profile.json in the root project, and logs a summary table. Task executions are included in the trace for context.
+ * When disabled every call is a no-op, so it is safe to leave in hot paths.
+ */
+public class Profiler {
+    public static final boolean ENABLED = Boolean.getBoolean("fg.profile");
+    private static final Span NOOP = new Span(null, null);
+    private static final String TASK = "task";
+    private static final Queue<Event> EVENTS = new ConcurrentLinkedQueue<>();
+    private static final Map<String, AtomicLong> COUNTERS = new ConcurrentSkipListMap<>();
+    private static Gradle attached = null;
+    private static long origin = System.nanoTime();
+    private static long originMillis = System.currentTimeMillis();
+
+    /**
+     * Starts a new timed span, which is recorded when closed. Use in a try-with-resources block.
+     */
+    public static Span start(String category, String name) {
+        return ENABLED ? new Span(category, name) : NOOP;
+    }
+
+    public static void count(String counter, long amount) {
+        if (ENABLED)
+            COUNTERS.computeIfAbsent(counter, k -> new AtomicLong()).addAndGet(amount);
+    }
+
+    /**
+     * Adds the time since start, the number of bytes, and one call to the named counter group.
+     * @param start The value of System.nanoTime() when the work began.
+     */
+    public static void time(String counter, long start, long bytes) {
+        if (!ENABLED)
+            return;
+        count(counter + ".nanos", System.nanoTime() - start);
+        count(counter + ".bytes", bytes);
+        count(counter + ".calls", 1);
+    }
+
+    /**
+     * Registers the end of build listener for this project's build. Safe to call multiple times.
+     */
+    public static synchronized void attach(Project project) {
+        if (!ENABLED)
+            return;
+        Gradle gradle = project.getGradle();
+        if (attached == gradle)
+            return;
+        attached = gradle;
+        origin = System.nanoTime();
+        originMillis = System.currentTimeMillis();
+        File output = new File(project.getRootProject().getBuildDir(), "fg_profile.json");
+        Provider<Reporter> reporter = gradle.getSharedServices().registerIfAbsent("fgProfiler", Reporter.class, spec -> spec.getParameters().getOutput().set(output));
+        //Listening to task events keeps the service alive until the end of the build, which is when Gradle closes it.
+        project.getObjects().newInstance(Registrar.class).getListeners().onTaskCompletion(reporter);
+    }
+
+    private static synchronized void finish(File output, Logger logger) {
+        attached = null;
+        List<Event> events = new ArrayList<>(EVENTS);
+        Map<String, Long> counters = new TreeMap<>();
+        COUNTERS.forEach((k, v) -> counters.put(k, v.get()));
+        EVENTS.clear();
+        COUNTERS.clear();
+
+        if (events.isEmpty() && counters.isEmpty())
+            return;
+
+        try {
+            writeTrace(output, events, counters);
+            logger.lifecycle("ForgeGradle profile written to " + output);
+        } catch (IOException e) {
+            logger.warn("Failed to write ForgeGradle profile to " + output, e);
+        }
+        logSummary(logger, events, counters);
+    }
+
+    private static void writeTrace(File output, List<Event> events, Map<String, Long> counters) throws IOException {
+        if (!output.getParentFile().exists())
+            output.getParentFile().mkdirs();
+
+        try (JsonWriter json = new JsonWriter(new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8))) {
+            json.beginObject();
+            json.name("traceEvents").beginArray();
+            for (Event e : events) {
+                json.beginObject();
+                json.name("name").value(e.name);
+                json.name("cat").value(e.category);
+                json.name("ph").value("X");
+                json.name("ts").value((e.start - origin) / 1000);
+                json.name("dur").value(e.duration / 1000);
+                json.name("pid").value(1);
+                json.name("tid").value(e.thread);
+                if (!e.args.isEmpty()) {
+                    json.name("args").beginObject();
+                    for (Map.Entry<String, Object> arg : e.args.entrySet()) {
+                        json.name(arg.getKey());
+                        if (arg.getValue() instanceof Number)
+                            json.value((Number)arg.getValue());
+                        else
+                            json.value(String.valueOf(arg.getValue()));
+                    }
+                    json.endObject();
+                }
+                json.endObject();
+            }
+            json.endArray();
+            json.name("counters").beginObject();
+            for (Map.Entry<String, Long> counter : counters.entrySet())
+                json.name(counter.getKey()).value(counter.getValue());
+            json.endObject();
+            json.endObject();
+        }
+    }
+
+    private static void logSummary(Logger logger, List<Event> events, Map<String, Long> counters) {
+        Map<String, long[]> totals = new TreeMap<>(); // count, total nanos, max nanos, hits, misses, bytes written, bytes read
+        for (Event e : events) {
+            if (TASK.equals(e.category))
+                continue; //Already in Gradle's own reports, only in the trace to see what we ran alongside
+            long[] total = totals.computeIfAbsent(e.category + ':' + e.name, k -> new long[7]);
+            total[0]++;
+            total[1] += e.duration;
+            total[2] = Math.max(total[2], e.duration);
+            Object cache = e.args.get("cache");
+            if ("hit".equals(cache)) total[3]++;
+            if ("miss".equals(cache)) total[4]++;
+            Object bytes = e.args.get("bytes");
+            if (bytes instanceof Number) total[5] += ((Number)bytes).longValue();
+            Object read = e.args.get("read");
+            if (read instanceof Number) total[6] += ((Number)read).longValue();
+        }
+
+        logger.lifecycle("ForgeGradle profile summary:");
+        logger.lifecycle(String.format(Locale.ENGLISH, "  %-40s %6s %10s %10s %5s %5s %12s %12s", "Span", "Count", "Total ms", "Max ms", "Hit", "Miss", "Read", "Written"));
+        totals.forEach((name, t) -> logger.lifecycle(String.format(Locale.ENGLISH, "  %-40s %6d %10d %10d %5d %5d %12d %12d",
+            name, t[0], t[1] / 1000000, t[2] / 1000000, t[3], t[4], t[6], t[5])));
+
+        if (!counters.isEmpty()) {
+            logger.lifecycle(String.format(Locale.ENGLISH, "  %-40s %12s", "Counter", "Value"));
+            counters.forEach((name, value) -> {
+                if (name.endsWith(".nanos"))
+                    logger.lifecycle(String.format(Locale.ENGLISH, "  %-40s %10d ms", name.substring(0, name.length() - 6) + ".time", value / 1000000));
+                else
+                    logger.lifecycle(String.format(Locale.ENGLISH, "  %-40s %12d", name, value));
+            });
+        }
+    }
+
+    public static class Span implements AutoCloseable {
+        private final String category;
+        private final String name;
+        private final long start = System.nanoTime();
+        private final long thread = Thread.currentThread().getId();
+        private final Map<String, Object> args = new LinkedHashMap<>();
+
+        private Span(String category, String name) {
+            this.category = category;
+            this.name = name;
+        }
+
+        public Span arg(String key, Object value) {
+            if (this != NOOP)
+                args.put(key, value);
+            return this;
+        }
+
+        /**
+         * Marks this span as a cache hit or miss, and counts it under the span's name.
+         */
+        public Span cache(boolean hit) {
+            count("cache." + (hit ? "hit" : "miss"), 1);
+            return arg("cache", hit ? "hit" : "miss");
+        }
+
+        /**
+         * Records the size of a file this span read, and adds it to the total bytes read. Can be called once for each input.
+         */
+        public Span input(File file) {
+            if (this == NOOP || file == null || !file.exists())
+                return this;
+            count("bytes.read", file.length());
+            Object read = args.get("read");
+            return arg("read", (read instanceof Number ? ((Number)read).longValue() : 0) + file.length());
+        }
+
+        /**
+         * Records the size of the file this span produced, and adds it to the total bytes written.
+         */
+        public Span output(File file) {
+            if (this == NOOP || file == null || !file.exists())
+                return this;
+            count("bytes.written", file.length());
+            return arg("bytes", file.length());
+        }
+
+        @Override
+        public void close() {
+            if (this != NOOP)
+                EVENTS.add(new Event(category, name, start, System.nanoTime() - start, thread, args));
+        }
+    }
+
+    /**
+     * Writes the profile when Gradle closes it at the end of the build, and adds every task that ran to the trace.
+     */
+    public static abstract class Reporter implements BuildService<Reporter.Parameters>, OperationCompletionListener, AutoCloseable {
+        public interface Parameters extends BuildServiceParameters {
+            RegularFileProperty getOutput();
+        }
+
+        @Override
+        public void onFinish(FinishEvent event) {
+            if (!(event instanceof TaskFinishEvent))
+                return;
+            OperationResult result = event.getResult();
+            long start = origin + (result.getStartTime() - originMillis) * 1000000;
+            long duration = (result.getEndTime() - result.getStartTime()) * 1000000;
+            EVENTS.add(new Event(TASK, ((TaskFinishEvent)event).getDescriptor().getTaskPath(), start, duration, 0, new LinkedHashMap<>()));
+        }
+
+        @Override
+        public void close() {
+            finish(getParameters().getOutput().get().getAsFile(), Logging.getLogger(Profiler.class));
+        }
+    }
+
+    public static abstract class Registrar {
+        @Inject
+        protected abstract BuildEventsListenerRegistry getListeners();
+    }
+
+    private static class Event {
+        private final String category;
+        private final String name;
+        private final long start;
+        private final long duration;
+        private final long thread;
+        private final Map<String, Object> args;
+
+        private Event(String category, String name, long start, long duration, long thread, Map<String, Object> args) {
+            this.category = category;
+            this.name = name;
+            this.start = start;
+            this.duration = duration;
+            this.thread = thread;
+            this.args = args;
+        }
+    }
+}
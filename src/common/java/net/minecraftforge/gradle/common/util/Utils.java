@@ -39,6 +39,7 @@ import org.apache.commons.io.IOUtils;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.artifacts.repositories.ArtifactRepository;
+import org.gradle.api.logging.Logger;
 import org.gradle.api.plugins.JavaPluginConvention;
 import org.gradle.api.tasks.TaskProvider;
 import org.gradle.util.GradleVersion;
@@ -76,6 +77,7 @@ import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.concurrent.Callable;
@@ -86,6 +88,7 @@ import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
@@ -186,34 +189,64 @@ public class Utils {
     }
 
     public static void extractZip(File source, File target, boolean overwrite, boolean deleteExtras) throws IOException {
+        extractZip(source, target, overwrite, deleteExtras, null);
+    }
+
+    /**
+     * Extracts the zip in parallel. Existing files are only rewritten if their size or CRC32 differs from the zip's central directory.
+     *
+     * @param manifest Optional record of the last extraction. If the source and every file extracted from it still have the same
+     *                 size and modified time, nothing is read or written at all.
+     */
+    public static void extractZip(File source, File target, boolean overwrite, boolean deleteExtras, @Nullable File manifest) throws IOException {
+        String header = source.getAbsolutePath() + '|' + source.length() + '|' + source.lastModified() + '|' + overwrite;
+        if (manifest != null && !deleteExtras && isExtracted(manifest, header, target))
+            return;
+
         Set<File> extra = deleteExtras ? Files.walk(target.toPath()).filter(Files::isRegularFile).map(Path::toFile).collect(Collectors.toSet()) : new HashSet<>();
 
         try (ZipFile zip = new ZipFile(source)) {
-            Enumeration<? extends ZipEntry> enu = zip.entries();
-            while (enu.hasMoreElements()) {
-                ZipEntry e = enu.nextElement();
-                if (e.isDirectory()) continue;
+            List<ZipEntry> entries = zip.stream().filter(e -> !e.isDirectory()).collect(Collectors.toList());
+
+            //Create the directories up front, so the workers don't race each other doing it.
+            Set<File> dirs = new HashSet<>();
+            for (ZipEntry e : entries) {
                 File out = new File(target, e.getName());
-                File parent = out.getParentFile();
-                if (!parent.exists()) {
-                    parent.mkdirs();
-                }
                 extra.remove(out);
+                if (dirs.add(out.getParentFile()) && !out.getParentFile().exists())
+                    out.getParentFile().mkdirs();
+            }
 
-                if (out.exists()) {
-                    if (!overwrite)
-                        continue;
-
-                    //Reading is fast, and prevents Disc wear, so check if it's equals before writing.
-                    try (FileInputStream fis = new FileInputStream(out)){
-                        if (IOUtils.contentEquals(zip.getInputStream(e), fis))
-                            continue;
+            try {
+                entries.parallelStream().forEach(e -> {
+                    File out = new File(target, e.getName());
+                    try {
+                        //Reading is fast, and prevents Disc wear, so check if it's equals before writing.
+                        if (out.exists() && (!overwrite || isSame(out, e)))
+                            return;
+
+                        try (InputStream is = zip.getInputStream(e);
+                             FileOutputStream fos = new FileOutputStream(out)) {
+                            IOUtils.copy(is, fos);
+                        }
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
                     }
-                }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
 
-                try (FileOutputStream fos = new FileOutputStream(out)) {
-                    IOUtils.copy(zip.getInputStream(e), fos);
+            if (manifest != null) {
+                if (!manifest.getParentFile().exists())
+                    manifest.getParentFile().mkdirs();
+                List<String> lines = new ArrayList<>();
+                lines.add(header);
+                for (ZipEntry e : entries) {
+                    File out = new File(target, e.getName());
+                    lines.add(e.getName() + '|' + out.length() + '|' + out.lastModified());
                 }
+                Files.write(manifest.toPath(), lines, StandardCharsets.UTF_8);
             }
         }
 
@@ -230,9 +263,44 @@ public class Utils {
         }
     }
 
+    //Size first, it's free, and only then CRC the file on disc.
+    private static boolean isSame(File file, ZipEntry entry) throws IOException {
+        if (entry.getSize() == -1 || entry.getCrc() == -1 || file.length() != entry.getSize())
+            return false;
+        CRC32 crc = new CRC32();
+        byte[] buf = new byte[8192];
+        try (InputStream fis = new FileInputStream(file)) {
+            int len;
+            while ((len = fis.read(buf)) != -1)
+                crc.update(buf, 0, len);
+        }
+        return crc.getValue() == entry.getCrc();
+    }
+
+    private static boolean isExtracted(File manifest, String header, File target) throws IOException {
+        if (!manifest.exists())
+            return false;
+        List<String> lines = Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(header))
+            return false;
+        for (String line : lines.subList(1, lines.size())) {
+            String[] pts = line.split("\\|");
+            if (pts.length != 3)
+                return false;
+            File file = new File(target, pts[0]);
+            if (!file.exists() || file.length() != Long.parseLong(pts[1]) || file.lastModified() != Long.parseLong(pts[2]))
+                return false;
+        }
+        return true;
+    }
+
     public static File updateDownload(Project project, File target, Download dl) throws IOException {
+        return updateDownload(project.getLogger(), target, dl);
+    }
+
+    public static File updateDownload(Logger logger, File target, Download dl) throws IOException {
         if (!target.exists() || !HashFunction.SHA1.hash(target).equals(dl.sha1)) {
-            project.getLogger().lifecycle("Downloading: " + dl.url);
+            logger.lifecycle("Downloading: " + dl.url);
 
             if (!target.getParentFile().exists()) {
                 target.getParentFile().mkdirs();
@@ -256,11 +324,11 @@ public class Utils {
         updateHash(target, HashFunction.values());
     }
     public static void updateHash(File target, HashFunction... functions) throws IOException {
+        Map<HashFunction, String> hashes = target.exists() ? HashFunction.hashAll(target, functions) : null;
         for (HashFunction function : functions) {
             File cache = new File(target.getAbsolutePath() + "." + function.getExtension());
-            if (target.exists()) {
-                String hash = function.hash(target);
-                Files.write(cache.toPath(), hash.getBytes());
+            if (hashes != null) {
+                Files.write(cache.toPath(), hashes.get(function).getBytes());
             } else if (cache.exists()) {
                 cache.delete();
             }
@@ -329,13 +397,10 @@ public class Utils {
     }
 
     public static byte[] getZipData(File file, String name) throws IOException {
-        try (ZipFile zip = new ZipFile(file)) {
-            ZipEntry entry = zip.getEntry(name);
-            if (entry == null)
-                throw new IOException("Zip Missing Entry: " + name + " File: " + file);
-
-            return IOUtils.toByteArray(zip.getInputStream(entry));
-        }
+        byte[] ret = ZipCache.getData(file, name);
+        if (ret == null)
+            throw new IOException("Zip Missing Entry: " + name + " File: " + file);
+        return ret;
     }
 
 
@@ -0,0 +1,167 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.common.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming xxHash64, seed 0. Several times faster than SHA-1 and plenty for telling if a local file changed, but not cryptographic.
+ * Only use it for things that never leave the machine.
+ */
+class XXHash64 {
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+    private static final long P5 = 0x27D4EB2F165667C5L;
+
+    private long v1 = P1 + P2;
+    private long v2 = P2;
+    private long v3 = 0;
+    private long v4 = -P1;
+    private long total = 0;
+    private final byte[] mem = new byte[32];
+    private int memSize = 0;
+
+    public static String hash(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            XXHash64 hash = new XXHash64();
+            byte[] buf = new byte[1 << 16];
+            int count;
+            while ((count = in.read(buf)) != -1)
+                hash.update(buf, 0, count);
+            return hash.toHex();
+        }
+    }
+
+    public static String hash(byte[] data) {
+        XXHash64 hash = new XXHash64();
+        hash.update(data, 0, data.length);
+        return hash.toHex();
+    }
+
+    public void update(byte[] data, int off, int len) {
+        total += len;
+        int end = off + len;
+
+        if (memSize + len < 32) {
+            System.arraycopy(data, off, mem, memSize, len);
+            memSize += len;
+            return;
+        }
+
+        if (memSize > 0) {
+            int fill = 32 - memSize;
+            System.arraycopy(data, off, mem, memSize, fill);
+            v1 = round(v1, getLong(mem, 0));
+            v2 = round(v2, getLong(mem, 8));
+            v3 = round(v3, getLong(mem, 16));
+            v4 = round(v4, getLong(mem, 24));
+            off += fill;
+            memSize = 0;
+        }
+
+        for (; off + 32 <= end; off += 32) {
+            v1 = round(v1, getLong(data, off));
+            v2 = round(v2, getLong(data, off + 8));
+            v3 = round(v3, getLong(data, off + 16));
+            v4 = round(v4, getLong(data, off + 24));
+        }
+
+        if (off < end) {
+            System.arraycopy(data, off, mem, 0, end - off);
+            memSize = end - off;
+        }
+    }
+
+    public long digest() {
+        long h;
+        if (total >= 32) {
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = merge(h, v1);
+            h = merge(h, v2);
+            h = merge(h, v3);
+            h = merge(h, v4);
+        } else {
+            h = P5;
+        }
+        h += total;
+
+        int off = 0;
+        for (; off + 8 <= memSize; off += 8) {
+            h ^= round(0, getLong(mem, off));
+            h = Long.rotateLeft(h, 27) * P1 + P4;
+        }
+        if (off + 4 <= memSize) {
+            h ^= (getInt(mem, off) & 0xFFFFFFFFL) * P1;
+            h = Long.rotateLeft(h, 23) * P2 + P3;
+            off += 4;
+        }
+        for (; off < memSize; off++) {
+            h ^= (mem[off] & 0xFF) * P5;
+            h = Long.rotateLeft(h, 11) * P1;
+        }
+
+        h ^= h >>> 33;
+        h *= P2;
+        h ^= h >>> 29;
+        h *= P3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    public String toHex() {
+        String hex = Long.toHexString(digest());
+        return "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * P2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * P1;
+    }
+
+    private static long merge(long acc, long val) {
+        acc ^= round(0, val);
+        return acc * P1 + P4;
+    }
+
+    private static long getLong(byte[] data, int off) {
+        return (data[off] & 0xFFL)
+            | (data[off + 1] & 0xFFL) << 8
+            | (data[off + 2] & 0xFFL) << 16
+            | (data[off + 3] & 0xFFL) << 24
+            | (data[off + 4] & 0xFFL) << 32
+            | (data[off + 5] & 0xFFL) << 40
+            | (data[off + 6] & 0xFFL) << 48
+            | (data[off + 7] & 0xFFL) << 56;
+    }
+
+    private static int getInt(byte[] data, int off) {
+        return (data[off] & 0xFF)
+            | (data[off + 1] & 0xFF) << 8
+            | (data[off + 2] & 0xFF) << 16
+            | (data[off + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.common.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Daemon wide cache of small metadata entries read from archives, like config.json and access transformers in the MCPConfig and userdev zips.
+ * These get looked up many times during configuration, and would otherwise reopen and reread the zip every time.
+ *
+ * Entries are keyed by the archive's path, size, modified time and file key (the inode, where the OS has one), so they're dropped as soon as the file changes.
+ * The file key catches archives that were replaced by a move, even when the new one has the same size and time.
+ * Zip handles are shared, and closed after a few seconds without use so the archives aren't held open (and locked on Windows) for long.
+ * A handle that's being read from is only closed once the read is done.
+ */
+public class ZipCache {
+    private static final int MAX_SIZE = 1 << 24; //16MB of entries
+    private static final Cache<String, Handle> HANDLES = CacheBuilder.newBuilder()
+            .expireAfterAccess(5, TimeUnit.SECONDS)
+            .<String, Handle>removalListener(e -> e.getValue().evict())
+            .build();
+    private static final Cache<String, Optional<byte[]>> ENTRIES = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_SIZE)
+            .<String, Optional<byte[]>>weigher((k, v) -> k.length() + v.map(d -> d.length).orElse(0))
+            .build();
+    // Guava only expires entries when the cache is touched, so make sure idle handles get closed.
+    private static final ScheduledExecutorService CLEANER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread ret = new Thread(r, "ForgeGradle ZipCache cleaner");
+        ret.setDaemon(true);
+        return ret;
+    });
+
+    static {
+        CLEANER.scheduleWithFixedDelay(HANDLES::cleanUp, 5, 5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns a copy of the named entry's data, or null if the archive doesn't have it.
+     */
+    @Nullable
+    public static byte[] getData(File archive, String name) throws IOException {
+        String key = key(archive);
+        try {
+            Optional<byte[]> ret = ENTRIES.get(key + '!' + name, () -> Optional.ofNullable(read(key, archive, name)));
+            return ret.map(byte[]::clone).orElse(null);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException)e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static byte[] read(String key, File archive, String name) throws IOException {
+        Handle handle;
+        do {
+            try {
+                handle = HANDLES.get(key, () -> new Handle(new ZipFile(archive)));
+            } catch (ExecutionException | UncheckedExecutionException e) {
+                if (e.getCause() instanceof IOException)
+                    throw (IOException)e.getCause();
+                throw new RuntimeException(e.getCause());
+            }
+        } while (!handle.pin()); //Evicted between the lookup and the pin, so it's no longer in the cache and the next lookup opens a fresh one.
+
+        try {
+            ZipEntry entry = handle.zip.getEntry(name);
+            if (entry == null)
+                return null;
+            try (InputStream is = handle.zip.getInputStream(entry)) {
+                return IOUtils.toByteArray(is);
+            }
+        } finally {
+            handle.unpin();
+        }
+    }
+
+    private static String key(File archive) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(archive.toPath(), BasicFileAttributes.class);
+        return archive.getAbsolutePath() + '|' + attrs.size() + '|' + attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS) + '|' + attrs.fileKey();
+    }
+
+    // A shared zip, which is only closed once it's been evicted and nobody is reading from it.
+    private static class Handle {
+        private final ZipFile zip;
+        private int users = 0;
+        private boolean evicted = false;
+
+        private Handle(ZipFile zip) {
+            this.zip = zip;
+        }
+
+        private synchronized boolean pin() {
+            if (evicted)
+                return false;
+            users++;
+            return true;
+        }
+
+        private synchronized void unpin() {
+            if (--users == 0 && evicted)
+                IOUtils.closeQuietly(zip);
+        }
+
+        private synchronized void evict() {
+            evicted = true;
+            if (users == 0)
+                IOUtils.closeQuietly(zip);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.e2e;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+
+import org.apache.commons.io.IOUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+/**
+ * Local stand in for every remote server ForgeGradle talks to, laid out on disk as {root}/{host}/{path}.
+ *
+ * It listens two ways:
+ *   {@link #getUrl()}       plain HTTP, requested as {url}/{host}/{path}, used for Maven repositories rewritten by the init script
+ *   {@link #getProxyPort()} an HTTPS proxy for everything ForgeGradle downloads itself. CONNECT tunnels end at a local HTTPS
+ *                           server with a throwaway certificate, which serves {host}/{path} using the request's Host header.
+ * See {@link #writeInitScript(File)} for how a build is pointed at it, ForgeGradle itself knows nothing about the mirror.
+ *
+ * In record mode anything missing is fetched from the real server and stored, including 404s, so one online run
+ * produces a mirror that later runs can replay with no network at all.
+ */
+public class MirrorServer implements AutoCloseable {
+    private static final String MISSING = ".missing";
+    private static final String PASSWORD = "forgegradle";
+
+    private final File root;
+    private final boolean record;
+    private final HttpServer server;
+    private final HttpsServer secure;
+    private final ServerSocket proxy;
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+    private final ExecutorService tunnels = Executors.newCachedThreadPool(r -> {
+        Thread ret = new Thread(r, "MirrorServer tunnel");
+        ret.setDaemon(true);
+        return ret;
+    });
+    private final Map<String, AtomicLong> bytes = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public MirrorServer(File root, File work, boolean record) throws IOException {
+        this.root = root;
+        this.record = record;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/", e -> handle(e, e.getRequestURI().getRawPath().substring(1)));
+        this.server.setExecutor(executor);
+        this.server.start();
+
+        this.secure = HttpsServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.secure.setHttpsConfigurator(new HttpsConfigurator(sslContext(new File(work, "mirror.jks"))));
+        this.secure.createContext("/", e -> handle(e, host(e) + e.getRequestURI().getRawPath()));
+        this.secure.setExecutor(executor);
+        this.secure.start();
+
+        this.proxy = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.tunnels.submit(this::accept);
+    }
+
+    public String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ':' + server.getAddress().getPort() + '/';
+    }
+
+    public int getProxyPort() {
+        return proxy.getLocalPort();
+    }
+
+    /**
+     * Writes a Gradle init script that points a build at this mirror: https Maven repositories are rewritten to {@link #getUrl()},
+     * and everything else goes through the proxy, trusting its certificate. Only meant for the throwaway TestKit daemon,
+     * as it turns certificate checks off for the whole JVM.
+     */
+    public void writeInitScript(File target) throws IOException {
+        String script =
+            "def mirror = '" + getUrl() + "'\n" +
+            "System.setProperty('https.proxyHost', '" + proxy.getInetAddress().getHostAddress() + "')\n" +
+            "System.setProperty('https.proxyPort', '" + getProxyPort() + "')\n" +
+            "def trustAll = [\n" +
+            "    checkClientTrusted: { chain, type -> },\n" +
+            "    checkServerTrusted: { chain, type -> },\n" +
+            "    getAcceptedIssuers: { new java.security.cert.X509Certificate[0] }\n" +
+            "] as javax.net.ssl.X509TrustManager\n" +
+            "def ssl = javax.net.ssl.SSLContext.getInstance('TLS')\n" +
+            "ssl.init(null, [trustAll] as javax.net.ssl.TrustManager[], null)\n" +
+            "javax.net.ssl.HttpsURLConnection.defaultSSLSocketFactory = ssl.socketFactory\n" +
+            "javax.net.ssl.HttpsURLConnection.defaultHostnameVerifier = { host, session -> true } as javax.net.ssl.HostnameVerifier\n" +
+            "allprojects {\n" +
+            "    repositories.withType(MavenArtifactRepository).configureEach { repo ->\n" +
+            "        if (repo.url.scheme == 'https') {\n" +
+            "            repo.url = mirror + repo.url.host + repo.url.path\n" +
+            "            repo.allowInsecureProtocol = true\n" +
+            "        }\n" +
+            "    }\n" +
+            "}\n";
+        if (!target.getParentFile().exists())
+            target.getParentFile().mkdirs();
+        Files.write(target.toPath(), script.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * Requests for files that were not in the mirror, they are either recorded or answered with a 404.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Bytes served per remote host since the last reset.
+     */
+    public Map<String, Long> getBytes() {
+        Map<String, Long> ret = new TreeMap<>();
+        bytes.forEach((k, v) -> ret.put(k, v.get()));
+        return ret;
+    }
+
+    public void reset() {
+        bytes.clear();
+        requests.set(0);
+        misses.set(0);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        secure.stop(0);
+        IOUtils.closeQuietly(proxy);
+        executor.shutdownNow();
+        tunnels.shutdownNow();
+    }
+
+    // Answers CONNECT requests by piping the raw connection to the HTTPS server, which does the actual work.
+    private void accept() {
+        while (!proxy.isClosed()) {
+            try {
+                Socket client = proxy.accept();
+                tunnels.submit(() -> tunnel(client));
+            } catch (IOException e) {
+                //Closed
+            }
+        }
+    }
+
+    private void tunnel(Socket client) {
+        try (Socket c = client; Socket target = new Socket(secure.getAddress().getAddress(), secure.getAddress().getPort())) {
+            InputStream in = c.getInputStream();
+            String request = readHeaders(in);
+            if (!request.startsWith("CONNECT ")) {
+                c.getOutputStream().write("HTTP/1.1 405 Method Not Allowed\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            c.getOutputStream().write("HTTP/1.1 200 Connection Established\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            c.getOutputStream().flush();
+
+            tunnels.submit(() -> pipe(target, c));
+            pipe(c, target);
+        } catch (IOException e) {
+            //Client went away
+        }
+    }
+
+    private static void pipe(Socket from, Socket to) {
+        try {
+            IOUtils.copy(from.getInputStream(), to.getOutputStream());
+            to.shutdownOutput();
+        } catch (IOException e) {
+            //One side closed, the other copy will finish on its own
+        }
+    }
+
+    private static String readHeaders(InputStream in) throws IOException {
+        StringBuilder buf = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1) {
+            buf.append((char)b);
+            if (buf.length() >= 4 && buf.lastIndexOf("\r\n\r\n") == buf.length() - 4)
+                break;
+        }
+        return buf.toString();
+    }
+
+    private static String host(HttpExchange exchange) {
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        if (host == null)
+            return "unknown";
+        int idx = host.indexOf(':');
+        return idx == -1 ? host : host.substring(0, idx);
+    }
+
+    //There's no public API to make a certificate, so let the JDK's keytool do it. Nothing checks it, the init script trusts anything.
+    private static SSLContext sslContext(File keystore) throws IOException {
+        try {
+            if (!keystore.exists()) {
+                if (!keystore.getParentFile().exists())
+                    keystore.getParentFile().mkdirs();
+                String keytool = Paths.get(System.getProperty("java.home"), "bin", "keytool").toString();
+                Process process = new ProcessBuilder(keytool, "-genkeypair", "-keystore", keystore.getAbsolutePath(), "-storetype", "JKS",
+                    "-storepass", PASSWORD, "-keypass", PASSWORD, "-alias", "mirror", "-keyalg", "RSA", "-dname", "CN=ForgeGradle Mirror",
+                    "-validity", "1")
+                    .redirectErrorStream(true).start();
+                String log = IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8);
+                if (process.waitFor() != 0)
+                    throw new IOException("Could not create the mirror's certificate: " + log);
+            }
+
+            KeyStore store = KeyStore.getInstance("JKS");
+            try (InputStream is = new FileInputStream(keystore)) {
+                store.load(is, PASSWORD.toCharArray());
+            }
+            KeyManagerFactory keys = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keys.init(store, PASSWORD.toCharArray());
+            SSLContext ret = SSLContext.getInstance("TLS");
+            ret.init(keys.getKeyManagers(), null, null);
+            return ret;
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private void handle(HttpExchange exchange, String path) throws IOException {
+        try {
+            requests.incrementAndGet();
+            if (path.contains("..")) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            File file = new File(root, path);
+            if (file.isDirectory() || path.indexOf('/') == -1 || path.endsWith("/")) { //Server roots, used for connection checks
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            if (!file.exists() && !new File(root, path + MISSING).exists()) {
+                misses.incrementAndGet();
+                if (record)
+                    fetch(path, file);
+            }
+
+            if (!file.exists()) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            byte[] data = Files.readAllBytes(file.toPath());
+
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().add("Content-Length", Integer.toString(data.length));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            exchange.sendResponseHeaders(200, data.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(data);
+            }
+            bytes.computeIfAbsent(path.substring(0, path.indexOf('/')), k -> new AtomicLong()).addAndGet(data.length);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void fetch(String path, File target) throws IOException {
+        if (!target.getParentFile().exists())
+            target.getParentFile().mkdirs();
+
+        HttpURLConnection con = (HttpURLConnection)new URL("https://" + path).openConnection();
+        con.setInstanceFollowRedirects(true);
+        try (InputStream in = con.getInputStream()) {
+            File temp = new File(target.getAbsolutePath() + ".tmp");
+            Files.copy(in, temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (FileNotFoundException e) {
+            new File(root, path + MISSING).createNewFile();
+        } finally {
+            con.disconnect();
+        }
+    }
+}
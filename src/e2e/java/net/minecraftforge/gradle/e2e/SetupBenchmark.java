@@ -0,0 +1,196 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.e2e;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.testkit.runner.GradleRunner;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Runs a userdev project setup from scratch against a {@link MirrorServer}, through Gradle TestKit, and records per stage:
+ * wall time, forked JVMs, bytes downloaded, peak heap of the build JVM, and the time spent in each ForgeGradle profiler span.
+ *
+ * Stages are run in order against the same project:
+ *   cold     compileJava with an empty Gradle home and cache, so the whole Minecraft pipeline runs
+ *   warm     compileJava again, everything should be up to date
+ *   runs     prepareRuns, which downloads assets and extracts natives
+ *
+ * Configured with system properties, see the setupBenchmark task in build.gradle.
+ */
+public class SetupBenchmark {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    public static void main(String[] args) throws IOException {
+        File mirror = new File(System.getProperty("fg.e2e.mirror", "build/e2e/mirror"));
+        File work = new File(System.getProperty("fg.e2e.work", "build/e2e/work"));
+        File results = new File(System.getProperty("fg.e2e.results", "build/e2e/results.json"));
+        boolean record = Boolean.getBoolean("fg.e2e.record");
+        String forge = System.getProperty("fg.e2e.forge", "1.16.5-36.1.0");
+        String mappings = System.getProperty("fg.e2e.mappings", "official:1.16.5");
+        List<File> classpath = Arrays.stream(System.getProperty("fg.e2e.classpath").split(File.pathSeparator))
+            .map(File::new).collect(Collectors.toList());
+
+        if (work.exists())
+            FileUtils.deleteDirectory(work);
+        File project = new File(work, "project");
+        File testKit = new File(work, "testkit");
+        File init = new File(work, "mirror.gradle");
+
+        List<Map<String, Object>> stages = new ArrayList<>();
+        try (MirrorServer server = new MirrorServer(mirror, work, record)) {
+            server.writeInitScript(init);
+            createProject(project, forge, mappings);
+            stages.add(run(server, "cold", project, testKit, init, classpath, "compileJava"));
+            stages.add(run(server, "warm", project, testKit, init, classpath, "compileJava"));
+            stages.add(run(server, "runs", project, testKit, init, classpath, "prepareRuns"));
+
+            if (!record && stages.stream().anyMatch(s -> ((Number)s.get("misses")).longValue() > 0))
+                System.out.println("WARNING: Some requests were not in the mirror, run with -Pe2e.record to fill it in");
+        }
+
+        Map<String, Object> ret = new LinkedHashMap<>();
+        ret.put("forge", forge);
+        ret.put("mappings", mappings);
+        ret.put("stages", stages);
+        if (!results.getParentFile().exists())
+            results.getParentFile().mkdirs();
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(results), StandardCharsets.UTF_8)) {
+            GSON.toJson(ret, out);
+        }
+
+        System.out.println(String.format("%-8s %10s %6s %14s %12s", "Stage", "Wall ms", "Forks", "Downloaded", "Peak heap"));
+        for (Map<String, Object> stage : stages)
+            System.out.println(String.format("%-8s %10d %6d %14d %12d", stage.get("name"), stage.get("wallMillis"), stage.get("forks"), stage.get("downloaded"), stage.get("peakHeap")));
+        System.out.println("Results written to " + results.getAbsolutePath());
+    }
+
+    private static void createProject(File project, String forge, String mappings) throws IOException {
+        String[] map = mappings.split(":", 2);
+        write(new File(project, "settings.gradle"), "rootProject.name = 'e2e'\n");
+        write(new File(project, "gradle.properties"),
+            "org.gradle.jvmargs=-Xmx3G\n" +
+            "systemProp.fg.profile=true\n");
+        // Peak heap is read from the build JVM's heap pools, reset at the start of every build so stages are separate.
+        write(new File(project, "build.gradle"),
+            "plugins {\n" +
+            "    id 'net.minecraftforge.gradle'\n" +
+            "}\n" +
+            "def heap = java.lang.management.ManagementFactory.memoryPoolMXBeans.findAll { it.type == java.lang.management.MemoryType.HEAP }\n" +
+            "heap.each { it.resetPeakUsage() }\n" +
+            "gradle.buildFinished {\n" +
+            "    file('build').mkdirs()\n" +
+            "    file('build/peak_heap.txt').text = heap.sum { it.peakUsage.used }.toString()\n" +
+            "}\n" +
+            "repositories {\n" +
+            "    mavenCentral()\n" +
+            "}\n" +
+            "minecraft {\n" +
+            "    mappings channel: '" + map[0] + "', version: '" + map[1] + "'\n" +
+            "    runs {\n" +
+            "        client {\n" +
+            "            workingDirectory project.file('run')\n" +
+            "        }\n" +
+            "    }\n" +
+            "}\n" +
+            "dependencies {\n" +
+            "    minecraft 'net.minecraftforge:forge:" + forge + "'\n" +
+            "}\n");
+        write(new File(project, "src/main/java/e2e/Mod.java"),
+            "package e2e;\n\npublic class Mod {\n    public static final Class<?> MC = net.minecraft.client.Minecraft.class;\n}\n");
+    }
+
+    private static Map<String, Object> run(MirrorServer server, String name, File project, File testKit, File init, List<File> classpath, String... tasks) throws IOException {
+        File profile = new File(project, "build/fg_profile.json");
+        File heap = new File(project, "build/peak_heap.txt");
+        profile.delete();
+        heap.delete();
+        server.reset();
+
+        List<String> args = new ArrayList<>(Arrays.asList(tasks));
+        args.add("--stacktrace");
+        args.add("--init-script");
+        args.add(init.getAbsolutePath());
+        long start = System.nanoTime();
+        GradleRunner.create()
+            .withProjectDir(project)
+            .withTestKitDir(testKit)
+            .withPluginClasspath(classpath)
+            .withArguments(args)
+            .forwardOutput()
+            .build();
+        long wall = (System.nanoTime() - start) / 1000000;
+
+        Map<String, Long> spans = new TreeMap<>();
+        long forks = 0;
+        if (profile.exists()) {
+            try (Reader reader = new InputStreamReader(Files.newInputStream(profile.toPath()), StandardCharsets.UTF_8)) {
+                JsonObject json = GSON.fromJson(reader, JsonObject.class);
+                for (JsonElement e : json.getAsJsonArray("traceEvents")) {
+                    JsonObject event = e.getAsJsonObject();
+                    String key = event.get("cat").getAsString() + ':' + event.get("name").getAsString();
+                    spans.merge(key, event.get("dur").getAsLong() / 1000, Long::sum);
+                }
+                JsonElement count = json.getAsJsonObject("counters").get("fork.count");
+                forks = count == null ? 0 : count.getAsLong();
+            }
+        }
+
+        Map<String, Long> bytes = server.getBytes();
+        Map<String, Object> ret = new LinkedHashMap<>();
+        ret.put("name", name);
+        ret.put("wallMillis", wall);
+        ret.put("forks", forks);
+        ret.put("downloaded", bytes.values().stream().mapToLong(Long::longValue).sum());
+        ret.put("downloadedByHost", bytes);
+        ret.put("requests", server.getRequests());
+        ret.put("misses", server.getMisses());
+        ret.put("peakHeap", heap.exists() ? Long.parseLong(new String(Files.readAllBytes(heap.toPath()), StandardCharsets.UTF_8).trim()) : -1L);
+        ret.put("spanMillis", spans);
+        return ret;
+    }
+
+    private static void write(File file, String data) throws IOException {
+        if (!file.getParentFile().exists())
+            file.getParentFile().mkdirs();
+        Files.write(file.toPath(), data.getBytes(StandardCharsets.UTF_8));
+    }
+}
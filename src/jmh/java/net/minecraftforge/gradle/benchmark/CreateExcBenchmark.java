@@ -0,0 +1,87 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.minecraftforge.gradle.common.util.MappingIndexHook;
+import net.minecraftforge.gradle.patcher.task.TaskCreateExc;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CreateExcBenchmark {
+    // Cold clears the parsed mappings before every call, like the first task of a build. Warm is every task after that.
+    @Param({"true", "false"})
+    public boolean cold;
+
+    private File srg;
+    private File statics;
+    private File constructors;
+    private File mappings;
+    private File output;
+
+    @Setup
+    public void setup() throws IOException {
+        srg = Fixtures.get(Fixtures.SRG);
+        statics = Fixtures.get(Fixtures.STATICS);
+        constructors = Fixtures.get(Fixtures.CONSTRUCTORS);
+        mappings = Fixtures.get(Fixtures.MAPPINGS);
+        output = Files.createTempFile("fg_jmh", ".exc").toFile();
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCache() {
+        if (cold)
+            MappingIndexHook.clearCache();
+    }
+
+    @TearDown
+    public void teardown() {
+        output.delete();
+    }
+
+    // The work the createExc task hands to its worker, run directly so we don't measure Gradle's scheduling.
+    @Benchmark
+    public void run() throws IOException {
+        TaskCreateExc.create(srg, statics, constructors, mappings, output);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.minecraftforge.gradle.common.util.Utils;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExtractZipBenchmark {
+    @State(Scope.Thread)
+    public static class Empty {
+        private File jar;
+        private File target;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            jar = Fixtures.get(Fixtures.JAR);
+            target = Files.createTempDirectory("fg_jmh_extract").toFile();
+        }
+
+        @Setup(Level.Invocation)
+        public void clean() throws IOException {
+            FileUtils.cleanDirectory(target);
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() throws IOException {
+            FileUtils.deleteDirectory(target);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Extracted {
+        private File jar;
+        private File target;
+        private File manifest;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            jar = Fixtures.get(Fixtures.JAR);
+            target = Files.createTempDirectory("fg_jmh_extract").toFile();
+            manifest = new File(target.getParentFile(), target.getName() + ".extracted");
+            Utils.extractZip(jar, target, true, true, manifest);
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() throws IOException {
+            FileUtils.deleteDirectory(target);
+            manifest.delete();
+        }
+    }
+
+    @Benchmark
+    public void cold(Empty state) throws IOException {
+        Utils.extractZip(state.jar, state.target, true);
+    }
+
+    // Everything on disk already, so this is the CRC comparison of every file.
+    @Benchmark
+    public void upToDate(Extracted state) throws IOException {
+        Utils.extractZip(state.jar, state.target, true, true);
+    }
+
+    // Everything on disk already, and recorded in the manifest, so this is only a metadata check.
+    @Benchmark
+    public void upToDateManifest(Extracted state) throws IOException {
+        Utils.extractZip(state.jar, state.target, true, true, state.manifest);
+    }
+}
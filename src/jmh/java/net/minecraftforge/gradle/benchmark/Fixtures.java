@@ -0,0 +1,227 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates synthetic, MCP shaped, inputs for the benchmarks. Output is deterministic so results are comparable between runs.
+ * Run by the jmhFixtures task, the benchmarks find the output through the fg.jmh.fixtures system property.
+ * If that isn't set, they are generated into a temporary directory instead.
+ */
+public class Fixtures {
+    public static final String MAPPINGS = "mappings.zip";
+    public static final String SRG = "joined.tsrg";
+    public static final String STATICS = "statics.txt";
+    public static final String CONSTRUCTORS = "constructors.txt";
+    public static final String JAR = "client.jar";
+    public static final String SOURCE = "Source.java";
+
+    private static final int VERSION = 1;
+    private static final int CLASSES = 2000;
+    private static final int FIELDS = 4;
+    private static final int METHODS = 6;
+    private static final int LIBRARIES = 1500;
+    private static final int RESOURCES = 500;
+    private static final int PACKAGES = 50;
+
+    private static File root = null;
+
+    public static void main(String[] args) throws IOException {
+        generate(new File(args[0]));
+    }
+
+    public static synchronized File get() throws IOException {
+        if (root == null) {
+            String prop = System.getProperty("fg.jmh.fixtures");
+            File dir = prop == null ? Files.createTempDirectory("fg_jmh").toFile() : new File(prop);
+            generate(dir);
+            root = dir;
+        }
+        return root;
+    }
+
+    public static File get(String name) throws IOException {
+        return new File(get(), name);
+    }
+
+    private static void generate(File dir) throws IOException {
+        File marker = new File(dir, "version.txt");
+        String version = Integer.toString(VERSION);
+        if (marker.exists() && version.equals(new String(Files.readAllBytes(marker.toPath()), StandardCharsets.UTF_8)))
+            return;
+
+        if (!dir.exists())
+            dir.mkdirs();
+
+        Random rand = new Random(42);
+        writeSrg(new File(dir, SRG));
+        writeMappings(new File(dir, MAPPINGS));
+        writeStatics(new File(dir, STATICS));
+        writeConstructors(new File(dir, CONSTRUCTORS));
+        writeJar(new File(dir, JAR), rand);
+        writeSource(new File(dir, SOURCE));
+        Files.write(marker.toPath(), version.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String obf(int cls) {
+        return "c" + cls;
+    }
+
+    private static String srg(int cls) {
+        return "net/minecraft/pkg" + (cls % PACKAGES) + "/Class" + cls;
+    }
+
+    private static int fieldId(int cls, int idx) {
+        return 1000 + cls * FIELDS + idx;
+    }
+
+    private static int methodId(int cls, int idx) {
+        return 1000 + cls * METHODS + idx;
+    }
+
+    private static String methodDesc(int cls, int idx, boolean mapped) {
+        String other = mapped ? srg((cls + idx + 1) % CLASSES) : obf((cls + idx + 1) % CLASSES);
+        switch (idx % 3) {
+            case 0:  return "()V";
+            case 1:  return "(IL" + other + ";)Z";
+            default: return "(L" + other + ";JD[I)L" + other + ";";
+        }
+    }
+
+    private static void writeSrg(File target) throws IOException {
+        try (Writer out = writer(target)) {
+            for (int cls = 0; cls < CLASSES; cls++) {
+                out.write(obf(cls) + ' ' + srg(cls) + '\n');
+                for (int x = 0; x < FIELDS; x++)
+                    out.write("\tf" + x + " field_" + fieldId(cls, x) + "_" + (char)('a' + x) + '\n');
+                for (int x = 0; x < METHODS; x++)
+                    out.write("\tm" + x + ' ' + methodDesc(cls, x, false) + " func_" + methodId(cls, x) + "_" + (char)('a' + x) + '\n');
+            }
+        }
+    }
+
+    private static void writeMappings(File target) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(target))) {
+            StringBuilder buf = new StringBuilder("searge,name,side,desc\n");
+            for (int cls = 0; cls < CLASSES; cls++)
+                for (int x = 0; x < FIELDS; x++)
+                    buf.append("field_").append(fieldId(cls, x)).append('_').append((char)('a' + x)).append(",field").append(cls).append('_').append(x).append(",2,").append(x == 0 ? "The field " + x : "").append('\n');
+            entry(zip, "fields.csv", buf.toString());
+
+            buf = new StringBuilder("searge,name,side,desc\n");
+            for (int cls = 0; cls < CLASSES; cls++)
+                for (int x = 0; x < METHODS; x++)
+                    buf.append("func_").append(methodId(cls, x)).append('_').append((char)('a' + x)).append(",method").append(cls).append('_').append(x).append(",2,").append(x % 2 == 0 ? "\"Does a thing, number " + x + "\"" : "").append('\n');
+            entry(zip, "methods.csv", buf.toString());
+
+            buf = new StringBuilder("param,name,side\n");
+            for (int cls = 0; cls < CLASSES; cls++)
+                for (int x = 0; x < METHODS; x++)
+                    for (int p = 1; p < 3; p++)
+                        buf.append("p_").append(methodId(cls, x)).append('_').append(p).append('_').append(",param").append(p).append(",2\n");
+            entry(zip, "params.csv", buf.toString());
+        }
+    }
+
+    private static void writeStatics(File target) throws IOException {
+        try (Writer out = writer(target)) {
+            for (int cls = 0; cls < CLASSES; cls++)
+                out.write("func_" + methodId(cls, 1) + "_b\n");
+        }
+    }
+
+    private static void writeConstructors(File target) throws IOException {
+        try (Writer out = writer(target)) {
+            for (int cls = 0; cls < CLASSES; cls++)
+                out.write((50000 + cls) + " " + srg(cls) + " (IL" + srg((cls + 1) % CLASSES) + ";)V\n");
+        }
+    }
+
+    private static void writeJar(File target, Random rand) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(target))) {
+            for (int cls = 0; cls < CLASSES; cls++)
+                entry(zip, obf(cls) + ".class", data(rand, 512, 4096));
+            for (int x = 0; x < LIBRARIES; x++)
+                entry(zip, "com/mojang/lib" + (x % 20) + "/Library" + x + ".class", data(rand, 256, 2048));
+            for (int x = 0; x < RESOURCES; x++)
+                entry(zip, "assets/minecraft/textures/block/texture" + x + ".png", data(rand, 128, 1024));
+            entry(zip, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\nMain-Class: net.minecraft.client.main.Main\r\n\r\n");
+        }
+    }
+
+    private static void writeSource(File target) throws IOException {
+        // A single large, decompiler shaped, class touching a wide spread of fields, methods, parameters and lambdas.
+        try (Writer out = writer(target)) {
+            out.write("package net.minecraft.pkg0;\n\n");
+            out.write("public class Class0 {\n");
+            for (int cls = 0; cls < 200; cls++) {
+                for (int x = 0; x < FIELDS; x++)
+                    out.write("   private int field_" + fieldId(cls, x) + "_" + (char)('a' + x) + ";\n");
+            }
+            out.write('\n');
+            for (int cls = 0; cls < 200; cls++) {
+                for (int x = 0; x < METHODS; x++) {
+                    int id = methodId(cls, x);
+                    out.write("   public boolean func_" + id + "_" + (char)('a' + x) + "(int p_" + id + "_1_, String p_" + id + "_2_) {\n");
+                    out.write("      this.field_" + fieldId(cls, x % FIELDS) + "_" + (char)('a' + (x % FIELDS)) + " = p_" + id + "_1_ + p_" + id + "_2_.length();\n");
+                    out.write("      Runnable r = () -> this.func_" + methodId(cls, (x + 1) % METHODS) + "_" + (char)('a' + ((x + 1) % METHODS)) + "(p_" + id + "_1_, null);\n");
+                    out.write("      java.util.function.BiFunction<Integer, Integer, Integer> f = (p_" + (id + 1) + "_1_, p_" + (id + 1) + "_2_) -> p_" + (id + 1) + "_1_ + p_" + (id + 1) + "_2_;\n");
+                    out.write("      return p_" + id + "_1_ > 0;\n");
+                    out.write("   }\n\n");
+                }
+            }
+            out.write("}\n");
+        }
+    }
+
+    private static byte[] data(Random rand, int min, int max) {
+        byte[] ret = new byte[min + rand.nextInt(max - min)];
+        // Half random, half repeating so it compresses like real class files rather than like noise.
+        for (int x = 0; x < ret.length; x++)
+            ret[x] = x % 2 == 0 ? (byte)rand.nextInt(256) : (byte)(x & 0x1F);
+        return ret;
+    }
+
+    private static void entry(ZipOutputStream zip, String name, String data) throws IOException {
+        entry(zip, name, data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void entry(ZipOutputStream zip, String name, byte[] data) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(data);
+        zip.closeEntry();
+    }
+
+    private static Writer writer(File target) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(target), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.minecraftforge.gradle.common.util.HashStore;
+
+/**
+ * The up to date check every MinecraftUserRepo and MCPRuntime step does before deciding it can reuse its output.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HashStoreBenchmark {
+    private File root;
+    private File input;
+
+    @Setup
+    public void setup() throws IOException {
+        root = Fixtures.get();
+        input = Files.createTempFile("fg_jmh", ".input").toFile();
+        input.deleteOnExit();
+        create().save(input);
+    }
+
+    private HashStore create() throws IOException {
+        return new HashStore(root)
+            .add("mappings", Fixtures.get(Fixtures.MAPPINGS))
+            .add("srg", Fixtures.get(Fixtures.SRG))
+            .add("jar", Fixtures.get(Fixtures.JAR))
+            .add("codever", "1");
+    }
+
+    @Benchmark
+    public boolean isSame() throws IOException {
+        return create().load(input).isSame();
+    }
+
+    @Benchmark
+    public boolean areSame() throws IOException {
+        return new HashStore(root).load(input).areSame(Fixtures.get(Fixtures.SOURCE), Fixtures.get(Fixtures.STATICS), Fixtures.get(Fixtures.CONSTRUCTORS));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.minecraftforge.gradle.common.util.McpNames;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class McpNamesBenchmark {
+    private McpNames names;
+    private byte[] source;
+
+    @Setup
+    public void setup() throws IOException {
+        names = McpNames.load(Fixtures.get(Fixtures.MAPPINGS));
+        source = Files.readAllBytes(Fixtures.get(Fixtures.SOURCE).toPath());
+    }
+
+    @Benchmark
+    public McpNames load() throws IOException {
+        return McpNames.load(Fixtures.get(Fixtures.MAPPINGS));
+    }
+
+    @Benchmark
+    public String rename() throws IOException {
+        return names.rename(new ByteArrayInputStream(source), false);
+    }
+
+    @Benchmark
+    public String renameJavadocs() throws IOException {
+        return names.rename(new ByteArrayInputStream(source), true);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.minecraftforge.gradle.common.util.MappingIndexHook;
+import net.minecraftforge.gradle.common.util.MinecraftRepo;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SplitJarBenchmark {
+    @Param({"true", "false"})
+    public boolean slim;
+    // Whether the mappings are parsed again on every call, or come from MappingIndex's cache as they do after the first split in a build.
+    @Param({"true", "false"})
+    public boolean cold;
+
+    private File jar;
+    private File srg;
+    private File output;
+
+    @Setup
+    public void setup() throws IOException {
+        jar = Fixtures.get(Fixtures.JAR);
+        srg = Fixtures.get(Fixtures.SRG);
+        output = Files.createTempFile("fg_jmh_split", ".jar").toFile();
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCache() {
+        if (cold)
+            MappingIndexHook.clearCache();
+    }
+
+    @TearDown
+    public void teardown() {
+        output.delete();
+    }
+
+    @Benchmark
+    public void split() throws IOException {
+        try (InputStream mappings = new FileInputStream(srg)) {
+            MinecraftRepo.splitJar(jar, mappings, output, slim, true);
+        }
+    }
+}
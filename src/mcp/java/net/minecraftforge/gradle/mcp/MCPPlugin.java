@@ -20,6 +20,7 @@
 
 package net.minecraftforge.gradle.mcp;
 
+import net.minecraftforge.gradle.common.util.Profiler;
 import net.minecraftforge.gradle.common.util.Utils;
 import net.minecraftforge.gradle.mcp.task.DownloadMCPConfigTask;
 import net.minecraftforge.gradle.mcp.task.SetupMCPTask;
@@ -34,6 +35,7 @@ public class MCPPlugin implements Plugin<Project> {
 
     @Override
     public void apply(@Nonnull Project project) {
+        Profiler.attach(project);
         MCPExtension extension = project.getExtensions().create("mcp", MCPExtension.class, project);
 
         TaskProvider<DownloadMCPConfigTask> downloadConfig = project.getTasks().register("downloadConfig", DownloadMCPConfigTask.class);
@@ -20,90 +20,57 @@
 
 package net.minecraftforge.gradle.mcp.function;
 
+import net.minecraftforge.gradle.common.util.AccessTransformerIndex;
 import net.minecraftforge.gradle.common.util.HashStore;
-import net.minecraftforge.gradle.common.util.MavenArtifactDownloader;
-import net.minecraftforge.gradle.common.util.Utils;
 import net.minecraftforge.gradle.mcp.util.MCPEnvironment;
 
-import org.gradle.api.Project;
-
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
 
-class AccessTransformerFunction extends ExecuteFunction {
+class AccessTransformerFunction implements MCPFunction {
+    private static final String ENGINE = "in-process-1"; //Bump when AccessTransformerIndex's output changes
     private List<File> files;
     private String transformers;
 
-    public AccessTransformerFunction(Project mcp, List<File> files) {
-        super(getJar(mcp), new String[0], getArguments(files), new HashMap<>());
-        this.loadData(Collections.emptyMap());
+    public AccessTransformerFunction(List<File> files) {
         this.files = files;
     }
 
-    private static File getJar(Project mcp) { //TODO: configurable version?
-        return MavenArtifactDownloader.gradle(mcp, Utils.ACCESSTRANSFORMER, false);
-    }
-
-    private static String[] getArguments(List<File> files) {
-        List<String> args = new ArrayList<>();
-        args.add("--inJar");
-        args.add("{input}");
-        args.add("--outJar");
-        args.add("{output}");
-        files.forEach(f -> {
-            args.add("--atFile");
-            args.add(f.getAbsolutePath());
-        });
-        return args.toArray(new String[args.size()]);
-    }
-
     @Override
-    public File execute(MCPEnvironment env) throws IOException, InterruptedException, ExecutionException {
+    public File execute(MCPEnvironment env) throws IOException {
+        Map<String, Object> arguments = env.getArguments();
+        File input = (File)arguments.get("input");
+        File output = (File)arguments.computeIfAbsent("output", k -> env.getFile("output.jar"));
 
-        if (transformers != null) {
-            File tmp = File.createTempFile("FG_ats_", ".cfg");
-            tmp.deleteOnExit();
-            Files.write(tmp.toPath(), transformers.getBytes());
-            List<String> args = new ArrayList<>(Arrays.asList(runArgs));
-            args.add("--atFile");
-            args.add(tmp.getAbsolutePath());
-            runArgs = args.toArray(new String[args.size()]);
+        HashStore hashStore = new HashStore(env.project).load(env.getFile("lastinput.sha1"));
+        hashStore.add("input", input);
+        addInputs(hashStore, "");
+        if (hashStore.isSame() && output.exists()) {
+            env.cacheHit();
+            return output;
         }
-        return super.execute(env);
-    }
 
+        if (output.exists()) output.delete();
+        AccessTransformerIndex.load(files, transformers == null ? Collections.emptyList() : Collections.singletonList(transformers))
+            .apply(input, output);
+
+        hashStore.save();
+        return output;
+    }
 
     public void addTransformer(String data) {
         if (transformers == null) transformers = data;
         else transformers += "\n#============================================================\n" + data;
     }
 
-    @Override
-    protected void addInputs(HashStore cache) {
-        cache.add(files);
-        if (transformers != null)
-            cache.add("transformers", transformers);
-    }
-
     @Override
     public void addInputs(HashStore cache, String prefix) { //Called by setupMain before executed
-        cache.add(prefix + "args", String.join(" ", runArgs));
-        cache.add(prefix + "jvmargs", String.join(" ", runArgs));
+        cache.add(prefix + "engine", ENGINE);
         cache.add(files);
         if (transformers != null)
             cache.add(prefix + "transformers", transformers);
-        try {
-            cache.add(prefix + "jar", jar);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        addInputs(cache);
     }
 }
@@ -53,6 +53,7 @@ class DownloadFileFunction implements MCPFunction {
 
         DownloadInfo info = downloadGetter.apply(environment);
         if (info.hash != null && output.exists() && HashFunction.SHA1.hash(output).equalsIgnoreCase(info.hash)) {
+            environment.cacheHit();
             return output; // If the hash matches, don't download again
         }
         // Check if file exists in local installer cache
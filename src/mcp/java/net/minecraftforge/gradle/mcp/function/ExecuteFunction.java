@@ -21,6 +21,7 @@
 package net.minecraftforge.gradle.mcp.function;
 
 import net.minecraftforge.gradle.common.util.HashStore;
+import net.minecraftforge.gradle.common.util.Profiler;
 import net.minecraftforge.gradle.common.util.Utils;
 import net.minecraftforge.gradle.mcp.util.MCPEnvironment;
 
@@ -103,7 +104,10 @@ class ExecuteFunction implements MCPFunction {
             }
         });
         addInputs(hashStore);
-        if (hashStore.isSame() && output.exists()) return output;
+        if (hashStore.isSame() && output.exists()) {
+            environment.cacheHit();
+            return output;
+        }
 
         // Delete previous output
         if (output.exists()) output.delete();
@@ -118,7 +122,9 @@ class ExecuteFunction implements MCPFunction {
         jarFile.close();
 
         // Execute command
-        try (BufferedOutputStream log_out = new BufferedOutputStream(new FileOutputStream(environment.getFile("console.log")))) {
+        Profiler.count("fork.count", 1);
+        try (BufferedOutputStream log_out = new BufferedOutputStream(new FileOutputStream(environment.getFile("console.log")));
+             Profiler.Span span = Profiler.start("fork", workingDir.getName()).arg("main", mainClass)) {
             environment.project.javaexec(java -> {
                 PrintWriter writer = new PrintWriter(log_out);
                 Function<String, String> quote = s -> '"' + s + '"';
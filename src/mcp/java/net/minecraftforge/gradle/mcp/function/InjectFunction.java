@@ -77,7 +77,10 @@ class InjectFunction implements MCPFunction {
 
         File hashFile = environment.getFile("lastinput.sha1");
         HashStore hashStore = new HashStore(environment.project).load(hashFile);
-        if (hashStore.isSame(input) && output.exists()) return output;
+        if (hashStore.isSame(input) && output.exists()) {
+            environment.cacheHit();
+            return output;
+        }
 
         if (output.exists()) output.delete();
         if (!output.getParentFile().exists()) output.getParentFile().mkdirs();
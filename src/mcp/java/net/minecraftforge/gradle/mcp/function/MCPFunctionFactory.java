@@ -72,8 +72,8 @@ public class MCPFunctionFactory {
      * Non-Public API, Can be changed at any time.
      */
     @Deprecated
-    public static MCPFunction createAT(Project project, List<File> files, Collection<String> data) {
-        AccessTransformerFunction ret = new AccessTransformerFunction(project, files);
+    public static MCPFunction createAT(List<File> files, Collection<String> data) {
+        AccessTransformerFunction ret = new AccessTransformerFunction(files);
         data.forEach(ret::addTransformer);
         return ret;
     }
@@ -65,6 +65,7 @@ class PatchFunction implements MCPFunction {
         }
 
         if (hashStore.isSame() && output.exists()) {
+            environment.cacheHit();
             return output;
         }
 
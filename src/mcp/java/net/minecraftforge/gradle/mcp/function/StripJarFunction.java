@@ -65,7 +65,10 @@ class StripJarFunction implements MCPFunction {
 
         File hashFile = environment.getFile("lastinput.sha1");
         HashStore hashStore = new HashStore(environment.project).load(hashFile);
-        if (hashStore.isSame(input) && output.exists()) return output;
+        if (hashStore.isSame(input) && output.exists()) {
+            environment.cacheHit();
+            return output;
+        }
 
         Utils.createEmpty(output);
         strip(input, output, whitelist);
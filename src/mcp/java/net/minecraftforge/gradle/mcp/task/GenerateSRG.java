@@ -22,11 +22,25 @@ package net.minecraftforge.gradle.mcp.task;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import javax.inject.Inject;
+
 import org.gradle.api.DefaultTask;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.gradle.workers.WorkerExecutor;
 
 import net.minecraftforge.gradle.common.util.MavenArtifactDownloader;
 import net.minecraftforge.gradle.common.util.McpNames;
@@ -36,38 +50,76 @@ import net.minecraftforge.srgutils.IMappingFile.IField;
 import net.minecraftforge.srgutils.IMappingFile.IMethod;
 import net.minecraftforge.srgutils.IRenamer;
 
-public class GenerateSRG extends DefaultTask {
-    private File srg;
-    private String mapping;
-    private IMappingFile.Format format = IMappingFile.Format.TSRG;
-    private boolean notch = false;
-    private boolean reverse = false;
-    private File output = getProject().file("build/" + getName() + "/output.tsrg");
+@CacheableTask
+public abstract class GenerateSRG extends DefaultTask {
+    private final RegularFileProperty srg = getProject().getObjects().fileProperty();
+    private final Property<String> mapping = getProject().getObjects().property(String.class);
+    private final RegularFileProperty names = getProject().getObjects().fileProperty()
+            .convention(getProject().getLayout().file(mapping.map(this::findNames)));
+    private final Property<IMappingFile.Format> format = getProject().getObjects().property(IMappingFile.Format.class).convention(IMappingFile.Format.TSRG);
+    private final Property<Boolean> notch = getProject().getObjects().property(Boolean.class).convention(false);
+    private final Property<Boolean> reverse = getProject().getObjects().property(Boolean.class).convention(false);
+    private final RegularFileProperty output = getProject().getObjects().fileProperty()
+            .convention(getProject().getLayout().getProjectDirectory().file("build/" + getName() + "/output.tsrg"));
+
+    public GenerateSRG() {
+        names.finalizeValueOnRead(); //Resolving the mappings goes through Gradle's dependency resolution, so only do it once.
+    }
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
 
     @TaskAction
-    public void apply() throws IOException {
-        File names = findNames(getMappings());
-        if (names == null)
+    public void apply() {
+        if (!getNames().isPresent())
             throw new IllegalStateException("Invalid mappings: " + getMappings() + " Could not find archive");
 
-        IMappingFile input = IMappingFile.load(srg);
-        if (!getNotch())
-            input = input.reverse().chain(input); // Reverse makes SRG->OBF, chain makes SRG->SRG
+        getWorkerExecutor().noIsolation().submit(Generate.class, params -> {
+            params.getSrg().set(getSrgProperty());
+            params.getNames().set(getNames());
+            params.getFormat().set(getFormatProperty());
+            params.getNotch().set(getNotchProperty());
+            params.getReverse().set(getReverseProperty());
+            params.getOutput().set(getOutputProperty());
+        });
+    }
 
-        McpNames map = McpNames.load(names);
-        IMappingFile ret = input.rename(new IRenamer() {
-            @Override
-            public String rename(IField value) {
-                return map.rename(value.getMapped());
-            }
+    public interface Parameters extends WorkParameters {
+        RegularFileProperty getSrg();
+        RegularFileProperty getNames();
+        Property<IMappingFile.Format> getFormat();
+        Property<Boolean> getNotch();
+        Property<Boolean> getReverse();
+        RegularFileProperty getOutput();
+    }
 
-            @Override
-            public String rename(IMethod value) {
-                return map.rename(value.getMapped());
+    public static abstract class Generate implements WorkAction<Parameters> {
+        @Override
+        public void execute() {
+            Parameters params = getParameters();
+            try {
+                IMappingFile input = IMappingFile.load(params.getSrg().get().getAsFile());
+                if (!params.getNotch().get())
+                    input = input.reverse().chain(input); // Reverse makes SRG->OBF, chain makes SRG->SRG
+
+                McpNames map = McpNames.load(params.getNames().get().getAsFile());
+                IMappingFile ret = input.rename(new IRenamer() {
+                    @Override
+                    public String rename(IField value) {
+                        return map.rename(value.getMapped());
+                    }
+
+                    @Override
+                    public String rename(IMethod value) {
+                        return map.rename(value.getMapped());
+                    }
+                });
+
+                ret.write(params.getOutput().get().getAsFile().toPath(), params.getFormat().get(), params.getReverse().get());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
-        });
-
-        ret.write(getOutput().toPath(), getFormat(), getReverse());
+        }
     }
 
     private File findNames(String mapping) {
@@ -79,54 +131,87 @@ public class GenerateSRG extends DefaultTask {
         return MavenArtifactDownloader.generate(getProject(), desc, false);
     }
 
-    @InputFile
+    @Internal
     public File getSrg() {
+        return srg.getAsFile().getOrNull();
+    }
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getSrgProperty() {
         return srg;
     }
     public void setSrg(File value) {
-        this.srg = value;
+        this.srg.set(value);
     }
 
-    @Input
+    @Internal
     public String getMappings() {
+        return mapping.getOrNull();
+    }
+    @Input
+    public Property<String> getMappingsProperty() {
         return mapping;
     }
     public void setMappings(String value) {
-        this.mapping = value;
+        this.mapping.set(value);
     }
 
-    @Input
+    // The archive the mappings resolve to, so the build cache keys on its contents rather than just the name.
+    @Optional
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getNames() {
+        return names;
+    }
+
+    @Internal
     public IMappingFile.Format getFormat() {
+        return format.get();
+    }
+    @Input
+    public Property<IMappingFile.Format> getFormatProperty() {
         return format;
     }
     public void setFormat(IMappingFile.Format value) {
-        this.format = value;
+        this.format.set(value);
     }
     public void setFormat(String value) {
         this.setFormat(IMappingFile.Format.valueOf(value));
     }
 
-    @Input
+    @Internal
     public boolean getNotch() {
+        return this.notch.get();
+    }
+    @Input
+    public Property<Boolean> getNotchProperty() {
         return this.notch;
     }
     public void setNotch(boolean value) {
-        this.notch = value;
+        this.notch.set(value);
     }
 
-    @Input
+    @Internal
     public boolean getReverse() {
+        return this.reverse.get();
+    }
+    @Input
+    public Property<Boolean> getReverseProperty() {
         return this.reverse;
     }
     public void setReverse(boolean value) {
-        this.reverse = value;
+        this.reverse.set(value);
     }
 
-    @OutputFile
+    @Internal
     public File getOutput() {
+        return output.getAsFile().getOrNull();
+    }
+    @OutputFile
+    public RegularFileProperty getOutputProperty() {
         return output;
     }
     public void setOutput(File value) {
-        this.output = value;
+        this.output.set(value);
     }
 }
@@ -65,6 +65,13 @@ public class MCPEnvironment {
         }
     }
 
+    /**
+     * Called by functions that found their previous output still up to date, and skipped running. Only used for metrics.
+     */
+    public void cacheHit() {
+        runtime.currentStep.cacheHit = true;
+    }
+
     public File getStepOutput(String name) {
         MCPRuntime.Step step = runtime.steps.get(name);
         if (step == null) {
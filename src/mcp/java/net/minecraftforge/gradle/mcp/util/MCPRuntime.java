@@ -23,15 +23,23 @@ package net.minecraftforge.gradle.mcp.util;
 import net.minecraftforge.gradle.common.config.MCPConfigV1;
 import net.minecraftforge.gradle.common.config.MCPConfigV2;
 import net.minecraftforge.gradle.common.util.MavenArtifactDownloader;
+import net.minecraftforge.gradle.common.util.Profiler;
+import net.minecraftforge.gradle.common.util.Utils;
 import net.minecraftforge.gradle.mcp.function.MCPFunctionFactory;
 import net.minecraftforge.gradle.mcp.function.MCPFunction;
 import org.gradle.api.Project;
 import org.gradle.api.logging.Logger;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.regex.Matcher;
@@ -42,6 +50,7 @@ import java.util.zip.ZipFile;
 public class MCPRuntime {
 
     private static final Pattern OUTPUT_REPLACE_PATTERN = Pattern.compile("^\\{(\\w+)Output\\}$");
+    private static final boolean DUMP_METRICS = Boolean.getBoolean("net.minecraftforge.gradle.mcp.metrics"); //Writes metrics.json to the MCP directory after every execution
 
     final Project project;
     final MCPEnvironment environment;
@@ -52,6 +61,9 @@ public class MCPRuntime {
     final Map<String, Step> steps = new LinkedHashMap<>();
     Step currentStep;
 
+    private final List<Listener> listeners = new ArrayList<>();
+    private final List<StepMetrics> metrics = new ArrayList<>();
+
     public MCPRuntime(Project project, File mcp_config, MCPConfigV2 config, String side,
             File mcpDirectory, Map<String, MCPFunction> extraPres) {
         this.project = project;
@@ -108,6 +120,17 @@ public class MCPRuntime {
         }
     }
 
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * The metrics of every step run by the last execution, in order.
+     */
+    public List<StepMetrics> getMetrics() {
+        return Collections.unmodifiableList(metrics);
+    }
+
     public File execute(Logger logger) throws Exception {
         return execute(logger, null);
     }
@@ -137,23 +160,67 @@ public class MCPRuntime {
         zip.close();
 
         File ret = null;
+        metrics.clear();
         logger.lifecycle("Executing steps");
         for (Step step : steps.values()) {
             logger.lifecycle(" > Running '" + step.name + "'");
             currentStep = step;
             step.arguments.replaceAll((key, value) -> value instanceof String ? applyStepOutputSubstitutions((String)value) : value);
-            ret = step.execute();
+            ret = execute(step);
 
             if (stop != null && stop.equals(step.name)) {
                 logger.lifecycle("Stopping at requested step: " + ret);
+                finish(logger);
                 return ret;
             }
         }
 
         logger.lifecycle("MCP environment setup is complete");
+        finish(logger);
         return ret;
     }
 
+    private File execute(Step step) throws Exception {
+        listeners.forEach(l -> l.stepStarted(step.name));
+        long inputs = StepMetrics.sizeOf(step.arguments);
+        long cpu = StepMetrics.childCpuNanos();
+        long start = System.nanoTime();
+        step.cacheHit = false;
+
+        File ret;
+        try (Profiler.Span span = Profiler.start("mcp", step.name)) {
+            ret = step.execute();
+            span.cache(step.cacheHit).output(ret);
+        }
+
+        long wall = System.nanoTime() - start;
+        long forked = cpu == -1 ? -1 : StepMetrics.childCpuNanos() - cpu;
+        StepMetrics stats = new StepMetrics(step.name, step.function.getClass().getSimpleName(), wall, step.cacheHit, inputs, ret == null || !ret.isFile() ? 0 : ret.length(), forked);
+        metrics.add(stats);
+        listeners.forEach(l -> l.stepFinished(stats));
+        return ret;
+    }
+
+    private void finish(Logger logger) throws IOException {
+        //Only with --info, so normal builds aren't spammed with a table every time MCP runs.
+        logger.info(String.format(Locale.ENGLISH, "  %-24s %-32s %10s %6s %12s %12s %10s", "Step", "Function", "Time ms", "Cached", "Input", "Output", "Forked ms"));
+        long total = 0;
+        for (StepMetrics m : metrics) {
+            total += m.wallNanos;
+            logger.info(String.format(Locale.ENGLISH, "  %-24s %-32s %10d %6s %12d %12d %10s", m.name, m.function, m.wallNanos / 1000000,
+                m.cacheHit ? "yes" : "no", m.inputBytes, m.outputBytes, m.forkedCpuNanos == -1 ? "?" : Long.toString(m.forkedCpuNanos / 1000000)));
+        }
+        logger.info(String.format(Locale.ENGLISH, "  %-24s %-32s %10d", "Total", "", total / 1000000));
+
+        if (DUMP_METRICS) {
+            File target = new File(mcpDirectory, "metrics.json");
+            if (!target.getParentFile().exists())
+                target.getParentFile().mkdirs();
+            Files.write(target.toPath(), Utils.GSON.toJson(metrics).getBytes(StandardCharsets.UTF_8));
+            logger.lifecycle("MCP metrics written to " + target);
+        }
+    }
+
     private Object applyStepOutputSubstitutions(String value) {
         Matcher matcher = OUTPUT_REPLACE_PATTERN.matcher(value);
         if (!matcher.find()) return value; // Not a replaceable string
@@ -165,6 +232,14 @@ public class MCPRuntime {
         throw new IllegalStateException("The string '" + value + "' did not return a valid substitution match!");
     }
 
+    /**
+     * Notified around every step, so callers can tell where setup time goes.
+     */
+    public interface Listener {
+        default void stepStarted(String name) {}
+        void stepFinished(StepMetrics metrics);
+    }
+
     class Step {
 
         private final String name;
@@ -172,6 +247,7 @@ public class MCPRuntime {
         final Map<String, Object> arguments;
         final File workingDirectory;
         File output;
+        boolean cacheHit;
 
         private Step(String name, MCPFunction function, Map<String, String> arguments, File workingDirectory, Map<String, String> data) {
             this.name = name;
@@ -0,0 +1,85 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.mcp.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+/**
+ * What a single MCPRuntime step cost. Passed to every {@link MCPRuntime.Listener} when the step finishes.
+ */
+public class StepMetrics {
+    private static final File PROC_STAT = new File("/proc/self/stat");
+    private static final long NANOS_PER_TICK = 1000000000L / 100; //USER_HZ, which is 100 on every Linux kernel we care about
+
+    public final String name;
+    public final String function;
+    public final long wallNanos;
+    public final boolean cacheHit;
+    public final long inputBytes;
+    public final long outputBytes;
+    /**
+     * CPU time used by processes forked during this step, or -1 if it can't be measured on this OS.
+     * This comes from the build JVM's total child CPU time in /proc/self/stat, so it's only available on Linux and is always -1 on Windows and macOS.
+     * The JMX beans only report the JVM's own CPU time, not its children's, so there is no portable fallback.
+     * Only accurate when steps don't run concurrently.
+     */
+    public final long forkedCpuNanos;
+
+    StepMetrics(String name, String function, long wallNanos, boolean cacheHit, long inputBytes, long outputBytes, long forkedCpuNanos) {
+        this.name = name;
+        this.function = function;
+        this.wallNanos = wallNanos;
+        this.cacheHit = cacheHit;
+        this.inputBytes = inputBytes;
+        this.outputBytes = outputBytes;
+        this.forkedCpuNanos = forkedCpuNanos;
+    }
+
+    static long sizeOf(Map<String, Object> arguments) {
+        long ret = 0;
+        for (Object value : arguments.values()) {
+            if (value instanceof File && ((File)value).isFile())
+                ret += ((File)value).length();
+        }
+        return ret;
+    }
+
+    /**
+     * Total CPU time of every child process this JVM has waited on, from cutime and cstime in /proc/self/stat.
+     * @return -1 if not available, anywhere but Linux.
+     */
+    static long childCpuNanos() {
+        if (!PROC_STAT.exists())
+            return -1;
+        try {
+            String stat = new String(Files.readAllBytes(PROC_STAT.toPath()), StandardCharsets.US_ASCII);
+            // The command name is in parens and can contain spaces, so count fields from the closing one. It's followed by field 3.
+            String[] pts = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            return (Long.parseLong(pts[13]) + Long.parseLong(pts[14])) * NANOS_PER_TICK; //Fields 16 and 17
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+}
@@ -32,6 +32,7 @@ import net.minecraftforge.gradle.common.util.BaseRepo;
 import net.minecraftforge.gradle.common.util.MavenArtifactDownloader;
 import net.minecraftforge.gradle.common.util.MinecraftRepo;
 import net.minecraftforge.gradle.common.util.MojangLicenseHelper;
+import net.minecraftforge.gradle.common.util.Profiler;
 import net.minecraftforge.gradle.common.util.Utils;
 import net.minecraftforge.gradle.common.util.VersionJson;
 import net.minecraftforge.gradle.mcp.MCPExtension;
@@ -85,6 +86,7 @@ public class PatcherPlugin implements Plugin<Project> {
     @Override
     public void apply(@Nonnull Project project) {
         Utils.checkEnvironment();
+        Profiler.attach(project);
 
         final PatcherExtension extension = project.getExtensions().create(PatcherExtension.class, PatcherExtension.EXTENSION_NAME, PatcherExtension.class, project);
         if (project.getPluginManager().findPlugin("java") == null) {
@@ -326,7 +328,7 @@ public class PatcherPlugin implements Plugin<Project> {
             TaskProvider<TaskApplyMappings> toMCPNew = project.getTasks().register("srg2mcpNew", TaskApplyMappings.class);
             toMCPNew.configure(task -> {
                 task.dependsOn(dlMappingsNew.get(), applyRangeConfig.get());
-                task.setInput(applyRangeConfig.get().getOutput());
+                task.getInputProperty().set(applyRangeConfig.flatMap(TaskApplyRangeMap::getOutputProperty));
                 task.setMappings(dlMappingsConfig.get().getOutput());
                 task.setLambdas(false);
             });
@@ -415,7 +417,7 @@ public class PatcherPlugin implements Plugin<Project> {
 
                     DownloadMCPConfigTask dlMCP = (DownloadMCPConfigTask)tasks.getByName("downloadConfig");
 
-                    if (createMcp2Srg.get().getSrg() == null) { //TODO: Make extractMCPData macro
+                    if (!createMcp2Srg.get().getSrgProperty().isPresent()) { //TODO: Make extractMCPData macro
                         TaskProvider<ExtractMCPData> ext = project.getTasks().register("extractSrg", ExtractMCPData.class);
                         ext.get().dependsOn(dlMCP);
                         ext.get().setConfig(dlMCP.getOutput());
@@ -423,12 +425,12 @@ public class PatcherPlugin implements Plugin<Project> {
                         createMcp2Srg.get().dependsOn(ext);
                     }
 
-                    if (createExc.get().getSrg() == null) {
-                        createExc.get().setSrg(createMcp2Srg.get().getSrg());
+                    if (!createExc.get().getSrgProperty().isPresent()) {
+                        createExc.get().getSrgProperty().set(createMcp2Srg.get().getSrgProperty());
                         createExc.get().dependsOn(createMcp2Srg);
                     }
 
-                    if (createExc.get().getStatics() == null) {
+                    if (!createExc.get().getStaticsProperty().isPresent()) {
                         TaskProvider<ExtractMCPData> ext = project.getTasks().register("extractStatic", ExtractMCPData.class);
                         ext.get().dependsOn(dlMCP);
                         ext.get().setConfig(dlMCP.getOutput());
@@ -439,7 +441,7 @@ public class PatcherPlugin implements Plugin<Project> {
                         createExc.get().dependsOn(ext);
                     }
 
-                    if (createExc.get().getConstructors() == null) {
+                    if (!createExc.get().getConstructorsProperty().isPresent()) {
                         TaskProvider<ExtractMCPData> ext = project.getTasks().register("extractConstructors", ExtractMCPData.class);
                         ext.get().dependsOn(dlMCP);
                         ext.get().setConfig(dlMCP.getOutput());
@@ -480,49 +482,49 @@ public class PatcherPlugin implements Plugin<Project> {
                         genPatches.get().setBase(extension.cleanSrc);
                     }
 
-                    if (createMcp2Srg.get().getSrg() == null) {
+                    if (!createMcp2Srg.get().getSrgProperty().isPresent()) {
                         ExtractMCPData extract = ((ExtractMCPData)tasks.getByName("extractSrg"));
                         if (extract != null) {
                             createMcp2Srg.get().setSrg(extract.getOutput());
                             createMcp2Srg.get().dependsOn(extract);
                         } else {
-                            GenerateSRG task = (GenerateSRG)tasks.getByName(createMcp2Srg.get().getName());
-                            createMcp2Srg.get().setSrg(task.getSrg());
-                            createMcp2Srg.get().dependsOn(task);
+                            GenerateSRG parentSrg = (GenerateSRG)tasks.getByName(createMcp2Srg.get().getName());
+                            createMcp2Srg.get().getSrgProperty().set(parentSrg.getSrgProperty());
+                            createMcp2Srg.get().dependsOn(parentSrg);
                         }
                     }
 
-                    if (createExc.get().getSrg() == null) { //TODO: Make a macro for Srg/Static/Constructors
+                    if (!createExc.get().getSrgProperty().isPresent()) { //TODO: Make a macro for Srg/Static/Constructors
                         ExtractMCPData extract = ((ExtractMCPData)tasks.getByName("extractSrg"));
                         if (extract != null) {
                             createExc.get().setSrg(extract.getOutput());
                             createExc.get().dependsOn(extract);
                         } else {
-                            TaskCreateExc task = (TaskCreateExc)tasks.getByName(createExc.get().getName());
-                            createExc.get().setSrg(task.getSrg());
-                            createExc.get().dependsOn(task);
+                            TaskCreateExc parentExc = (TaskCreateExc)tasks.getByName(createExc.get().getName());
+                            createExc.get().getSrgProperty().set(parentExc.getSrgProperty());
+                            createExc.get().dependsOn(parentExc);
                         }
                     }
-                    if (createExc.get().getStatics() == null) {
+                    if (!createExc.get().getStaticsProperty().isPresent()) {
                         ExtractMCPData extract = ((ExtractMCPData) tasks.getByName("extractStatic"));
                         if (extract != null) {
                             createExc.get().setStatics(extract.getOutput());
                             createExc.get().dependsOn(extract);
                         } else {
-                            TaskCreateExc task = (TaskCreateExc) tasks.getByName(createExc.get().getName());
-                            createExc.get().setStatics(task.getStatics());
-                            createExc.get().dependsOn(task);
+                            TaskCreateExc parentExc = (TaskCreateExc)tasks.getByName(createExc.get().getName());
+                            createExc.get().getStaticsProperty().set(parentExc.getStaticsProperty());
+                            createExc.get().dependsOn(parentExc);
                         }
                     }
-                    if (createExc.get().getConstructors() == null) {
+                    if (!createExc.get().getConstructorsProperty().isPresent()) {
                         ExtractMCPData extract = ((ExtractMCPData) tasks.getByName("extractConstructors"));
                         if (extract != null) {
                             createExc.get().setConstructors(extract.getOutput());
                             createExc.get().dependsOn(extract);
                         } else {
-                            TaskCreateExc task = (TaskCreateExc) tasks.getByName(createExc.get().getName());
-                            createExc.get().setConstructors(task.getConstructors());
-                            createExc.get().dependsOn(task);
+                            TaskCreateExc parentExc = (TaskCreateExc)tasks.getByName(createExc.get().getName());
+                            createExc.get().getConstructorsProperty().set(parentExc.getConstructorsProperty());
+                            createExc.get().dependsOn(parentExc);
                         }
                     }
                     for (TaskProvider<GenerateBinPatches> task : Lists.newArrayList(genJoinedBinPatches, genClientBinPatches, genServerBinPatches)) {
@@ -544,18 +546,18 @@ public class PatcherPlugin implements Plugin<Project> {
 
                 for (TaskProvider<GenerateSRG> genSrg : Arrays.asList(createMcp2Srg, createSrg2Mcp, createMcp2Obf)) {
                     genSrg.get().dependsOn(dlMappingsConfig);
-                    if (genSrg.get().getMappings() == null) {
+                    if (!genSrg.get().getMappingsProperty().isPresent()) {
                         genSrg.get().setMappings(dlMappingsConfig.get().getMappings());
                     }
                 }
 
-                if (createMcp2Obf.get().getSrg() == null) {
-                    createMcp2Obf.get().setSrg(createMcp2Srg.get().getSrg());
+                if (!createMcp2Obf.get().getSrgProperty().isPresent()) {
+                    createMcp2Obf.get().getSrgProperty().set(createMcp2Srg.get().getSrgProperty());
                     createMcp2Obf.get().dependsOn(createMcp2Srg);
                 }
 
-                if (createSrg2Mcp.get().getSrg() == null) {
-                    createSrg2Mcp.get().setSrg(createMcp2Srg.get().getSrg());
+                if (!createSrg2Mcp.get().getSrgProperty().isPresent()) {
+                    createSrg2Mcp.get().getSrgProperty().set(createMcp2Srg.get().getSrgProperty());
                     createSrg2Mcp.get().dependsOn(createMcp2Srg);
                 }
             }
@@ -574,7 +576,7 @@ public class PatcherPlugin implements Plugin<Project> {
             if (!extension.getAccessTransformers().isEmpty()) {
                 SetupMCPTask setupMCP = (SetupMCPTask) mcp.getTasks().getByName("setupMCP");
                 @SuppressWarnings("deprecation")
-                MCPFunction function = MCPFunctionFactory.createAT(mcp, extension.getAccessTransformers(), Collections.emptyList());
+                MCPFunction function = MCPFunctionFactory.createAT(extension.getAccessTransformers(), Collections.emptyList());
                 setupMCP.addPreDecompile(project.getName() + "AccessTransformer", function);
                 extension.getAccessTransformers().forEach(f -> {
                     userdevJar.get().from(f, e -> e.into("ats/"));
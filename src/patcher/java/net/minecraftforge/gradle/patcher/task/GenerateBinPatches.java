@@ -25,20 +25,29 @@ import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
 
 import net.minecraftforge.gradle.common.task.JarExec;
+import net.minecraftforge.gradle.common.util.BinPatcher;
+import net.minecraftforge.gradle.common.util.MappingIndex;
 import net.minecraftforge.gradle.common.util.Utils;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-public class GenerateBinPatches extends JarExec {
+public abstract class GenerateBinPatches extends JarExec {
     private File cleanJar;
     private File dirtyJar;
     private File srg;
@@ -77,6 +86,84 @@ public class GenerateBinPatches extends JarExec {
         return _args;
     }
 
+    @Override
+    @TaskAction
+    public void apply() throws IOException {
+        if (!canCreateInProcess()) {
+            super.apply();
+            return;
+        }
+
+        List<String> args = filterArgs();
+        File clean = null;
+        File dirty = null;
+        File output = null;
+        File srg = null;
+        String prefix = null;
+        Set<String> patched = null;
+        for (int x = 0; x < args.size(); x++) {
+            switch (args.get(x)) {
+                case "--clean":   clean = new File(args.get(++x)); break;
+                case "--create":  dirty = new File(args.get(++x)); break;
+                case "--output":  output = new File(args.get(++x)); break;
+                case "--srg":     srg = new File(args.get(++x)); break;
+                case "--prefix":  prefix = args.get(++x); break;
+                case "--patches":
+                    if (patched == null)
+                        patched = new HashSet<>();
+                    gatherPatches(new File(args.get(++x)), patched);
+                    break;
+            }
+        }
+
+        BinPatcher.create(clean, dirty, output, srg == null ? null : MappingIndex.load(srg), patched, prefix);
+    }
+
+    //Source patches are named after the class they patch, so that's all we need from them.
+    private static void gatherPatches(File dir, Set<String> patched) throws IOException {
+        if (!dir.isDirectory())
+            return;
+        Path root = dir.toPath();
+        try (Stream<Path> files = Files.walk(root)) {
+            patched.addAll(files.filter(Files::isRegularFile)
+                .map(p -> root.relativize(p).toString().replace('\\', '/'))
+                .filter(p -> p.endsWith(".java.patch"))
+                .map(p -> p.substring(0, p.length() - ".java.patch".length()))
+                .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Only BinaryPatcher's create mode is implemented in process, anything else, or any argument we don't understand, still forks the tool.
+     */
+    private boolean canCreateInProcess() {
+        if (getTool() == null || !getTool().startsWith("net.minecraftforge:binarypatcher:"))
+            return false;
+        List<String> args = Arrays.asList(getArgs());
+        for (int x = 0; x < args.size(); x++) {
+            switch (args.get(x)) {
+                case "--clean":
+                case "--create":
+                case "--output":
+                case "--srg":
+                case "--prefix":
+                case "--patches":
+                    x++;
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return args.contains("--clean") && args.contains("--create") && args.contains("--output");
+    }
+
+    @Override
+    @Optional
+    @InputFile
+    public File getToolJar() {
+        return canCreateInProcess() ? null : super.getToolJar();
+    }
+
     @InputFile
     public File getCleanJar() {
         return cleanJar;
@@ -20,101 +20,142 @@
 
 package net.minecraftforge.gradle.patcher.task;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 import java.util.zip.ZipFile;
 
-import org.apache.commons.io.IOUtils;
+import javax.inject.Inject;
+
 import org.gradle.api.DefaultTask;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
-
-import com.google.common.base.Strings;
-import com.google.common.io.Files;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.gradle.workers.WorkerExecutor;
 
 import de.siegmar.fastcsv.reader.NamedCsvReader;
+import net.minecraftforge.gradle.common.util.MappingIndex;
+import net.minecraftforge.srgutils.IMappingFile;
+import net.minecraftforge.srgutils.IMappingFile.IClass;
+import net.minecraftforge.srgutils.IMappingFile.IMethod;
 
-public class TaskCreateExc extends DefaultTask {
-    private static Pattern CLS_ENTRY = Pattern.compile("L([^;]+);");
+@CacheableTask
+public abstract class TaskCreateExc extends DefaultTask {
+    private final RegularFileProperty srg = getProject().getObjects().fileProperty();
+    private final RegularFileProperty statics = getProject().getObjects().fileProperty();
+    private final RegularFileProperty constructors = getProject().getObjects().fileProperty();
+    private final RegularFileProperty mappings = getProject().getObjects().fileProperty();
+    private final RegularFileProperty output = getProject().getObjects().fileProperty()
+            .convention(getProject().getLayout().getProjectDirectory().file("build/" + getName() + "/output.exc"));
 
-    private File srg;
-    private File statics;
-    private File constructors;
-    private File mappings;
-    private File output = getProject().file("build/" + getName() + "/output.exc");
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
 
     @TaskAction
-    public void run() throws IOException {
-        Set<String> staticMap = new HashSet<>(Files.readLines(getStatics(), StandardCharsets.UTF_8));
-        Map<String, String> names = loadMappings();
-        List<String> out = new ArrayList<>();
-
-        List<String> lines = Files.readLines(getSrg(), StandardCharsets.UTF_8);
-        lines = lines.stream().map(line -> line.split("#")[0]).filter(l -> !Strings.isNullOrEmpty(l.trim())).collect(Collectors.toList()); //Strip empty/comments
-
-        Map<String, String> classes = new HashMap<>();
-        lines.stream()
-        .filter(line -> !line.startsWith("\t") || (line.indexOf(':') != -1 && line.startsWith("CL:")))
-        .map(line -> line.indexOf(':') != -1 ? line.substring(4).split(" ") : line.split(" "))
-        .filter(pts -> pts.length == 2 && !pts[0].endsWith("/"))
-        .forEach(pts -> classes.put(pts[0], pts[1]));
-
-        String currentClass = null;
-        for (String line : lines) {
-            if (line.startsWith("\t")) line = currentClass + " " + line.substring(1);
-
-            String[] pts = line.split(" ");
-            if (pts[0].indexOf(':') != -1) {
-                if (pts[0].equals("MD:")) {
-                    int idx = pts[3].lastIndexOf('/');
-                    String name = pts[3].substring(idx + 1);
-                    if (name.startsWith("func_") && !pts[4].contains("()")) {
-                        out.add(pts[3].substring(0, idx + 1) + "." + names.getOrDefault(name, name) + pts[4] + "=|" + String.join(",", buildArgs(name, pts[4], staticMap.contains(name))));
-                    }
-                }
-            } else {
-                if (pts.length == 2) {
-                    currentClass = pts[1];
-                } else if (pts.length == 4) {
-                    String name = pts[3];
-                    if (name.startsWith("func_") && !pts[2].contains("()")) {
-                        String desc = remapDesc(pts[2], classes);
-                        out.add(currentClass + "." + names.getOrDefault(name, name) + desc + "=|" + String.join(",", buildArgs(name, desc, staticMap.contains(name))));
-                    }
-                }
+    public void run() {
+        getWorkerExecutor().noIsolation().submit(CreateExc.class, params -> {
+            params.getSrg().set(getSrgProperty());
+            params.getStatics().set(getStaticsProperty());
+            params.getConstructors().set(getConstructorsProperty());
+            params.getMappings().set(getMappingsProperty());
+            params.getOutput().set(getOutputProperty());
+        });
+    }
+
+    public interface Parameters extends WorkParameters {
+        RegularFileProperty getSrg();
+        RegularFileProperty getStatics();
+        RegularFileProperty getConstructors();
+        RegularFileProperty getMappings();
+        RegularFileProperty getOutput();
+    }
+
+    public static abstract class CreateExc implements WorkAction<Parameters> {
+        @Override
+        public void execute() {
+            Parameters params = getParameters();
+            try {
+                create(params.getSrg().get().getAsFile(), params.getStatics().get().getAsFile(), params.getConstructors().get().getAsFile(),
+                       params.getMappings().get().getAsFile(), params.getOutput().get().getAsFile());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
         }
+    }
 
-        Files.readLines(getConstructors(), StandardCharsets.UTF_8).stream().map(l -> l.split(" ")).forEach(pts -> {
-            out.add(pts[1] + ".<init>" + pts[2] + "=|" + String.join(",", buildArgs(pts[0], pts[2], false)));
-        });
+    public static void create(File srgFile, File statics, File constructors, File mappings, File output) throws IOException {
+        Set<String> staticMap = loadLines(statics);
+        Map<String, String> names = loadMappings(mappings);
+        IMappingFile srg = MappingIndex.load(srgFile).getMappings(); //Handles every SRG flavor, and caches the mapped descriptors for us.
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8))) {
+            boolean first = true;
+            for (IClass cls : srg.getClasses()) {
+                for (IMethod mtd : cls.getMethods()) {
+                    String name = mtd.getMapped();
+                    if (!name.startsWith("func_") || mtd.getDescriptor().startsWith("()"))
+                        continue;
+
+                    String desc = mtd.getMappedDescriptor();
+                    if (!first)
+                        out.write('\n');
+                    first = false;
+                    out.write(cls.getMapped());
+                    out.write('.');
+                    out.write(names.getOrDefault(name, name));
+                    out.write(desc);
+                    out.write("=|");
+                    writeArgs(out, name, desc, staticMap.contains(name));
+                }
+            }
 
-        try (FileOutputStream fos = new FileOutputStream(getOutput())) {
-            IOUtils.write(String.join("\n", out), fos, StandardCharsets.UTF_8);
+            try (BufferedReader reader = Files.newBufferedReader(constructors.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty())
+                        continue;
+                    String[] pts = line.split(" ");
+                    if (!first)
+                        out.write('\n');
+                    first = false;
+                    out.write(pts[1]);
+                    out.write(".<init>");
+                    out.write(pts[2]);
+                    out.write("=|");
+                    writeArgs(out, pts[0], pts[2], false);
+                }
+            }
         }
     }
 
-    private List<String> buildArgs(String name, String desc, boolean isStatic) {
+    private static void writeArgs(Writer out, String name, String desc, boolean isStatic) throws IOException {
         String prefix = "p_i" + name + "_";
         if (name.startsWith("func_")) {
-            prefix = "p_" + name.split("_")[1] + "_";
+            int end = name.indexOf('_', 5);
+            prefix = "p_" + name.substring(5, end == -1 ? name.length() : end) + "_";
         }
-        List<String> ret = new ArrayList<String>();
         int idx = isStatic ? 0 : 1;
         int x = 1;
+        boolean first = true;
         while (desc.charAt(x) != ')') {
             int array = 0;
             while (desc.charAt(x) == '[') {
@@ -129,42 +170,29 @@ public class TaskCreateExc extends DefaultTask {
                 x = desc.indexOf(';', x);
             x++;
 
-            ret.add(prefix + idx + '_');
+            if (!first)
+                out.write(',');
+            first = false;
+            out.write(prefix);
+            out.write(Integer.toString(idx));
+            out.write('_');
             idx += size;
         }
-
-        return ret;
     }
 
-    private String remapClass(String cls, Map<String, String> map)
-    {
-        String ret = map.get(cls);
-        if (ret != null)
-            return ret;
-
-        int idx = cls.lastIndexOf('$');
-        if (idx != -1)
-            ret = remapClass(cls.substring(0, idx), map) + cls.substring(idx);
-        else
-            ret = cls;
-        map.put(cls, ret);
-        return cls;
-    }
-
-    private String remapDesc(String desc, Map<String, String> map)
-    {
-        StringBuffer buf = new StringBuffer();
-        Matcher matcher = CLS_ENTRY.matcher(desc);
-        while (matcher.find()) {
-            matcher.appendReplacement(buf, Matcher.quoteReplacement("L" + remapClass(matcher.group(1), map) + ";"));
+    private static Set<String> loadLines(File file) throws IOException {
+        Set<String> ret = new HashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null)
+                ret.add(line);
         }
-        matcher.appendTail(buf);
-        return buf.toString();
+        return ret;
     }
 
-    private Map<String, String> loadMappings() throws IOException {
+    private static Map<String, String> loadMappings(File mappings) throws IOException {
         Map<String, String> names = new HashMap<>();
-        try (ZipFile zip = new ZipFile(getMappings())) {
+        try (ZipFile zip = new ZipFile(mappings)) {
             zip.stream().filter(e -> e.getName().equals("fields.csv") || e.getName().equals("methods.csv")).forEach(e -> {
                 try (NamedCsvReader reader = NamedCsvReader.builder().build(new InputStreamReader(zip.getInputStream(e)))) {
                     reader.forEach(row -> names.put(row.getField("searge"), row.getField("name")));
@@ -176,40 +204,64 @@ public class TaskCreateExc extends DefaultTask {
         return names;
     }
 
-    @InputFile
+    @Internal
     public File getSrg() {
+        return this.srg.getAsFile().getOrNull();
+    }
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getSrgProperty() {
         return this.srg;
     }
     public void setSrg(File value) {
-        this.srg = value;
+        this.srg.set(value);
     }
-    @InputFile
+    @Internal
     public File getStatics() {
+        return this.statics.getAsFile().getOrNull();
+    }
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getStaticsProperty() {
         return this.statics;
     }
     public void setStatics(File value) {
-        this.statics = value;
+        this.statics.set(value);
     }
-    @InputFile
+    @Internal
     public File getConstructors() {
+        return this.constructors.getAsFile().getOrNull();
+    }
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getConstructorsProperty() {
         return this.constructors;
     }
     public void setConstructors(File value) {
-        this.constructors = value;
+        this.constructors.set(value);
     }
-    @InputFile
+    @Internal
     public File getMappings() {
+        return mappings.getAsFile().getOrNull();
+    }
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getMappingsProperty() {
         return mappings;
     }
     public void setMappings(File value) {
-        this.mappings = value;
+        this.mappings.set(value);
     }
 
-    @OutputFile
+    @Internal
     public File getOutput() {
+        return output.getAsFile().getOrNull();
+    }
+    @OutputFile
+    public RegularFileProperty getOutputProperty() {
         return output;
     }
     public void setOutput(File value) {
-        this.output = value;
+        this.output.set(value);
     }
 }
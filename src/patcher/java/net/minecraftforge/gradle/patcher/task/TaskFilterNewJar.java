@@ -22,48 +22,79 @@ package net.minecraftforge.gradle.patcher.task;
 
 import org.apache.commons.io.IOUtils;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.gradle.workers.WorkerExecutor;
 
-import com.google.common.io.Files;
+import net.minecraftforge.gradle.common.util.MappingIndex;
 import net.minecraftforge.gradle.common.util.Utils;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.UncheckedIOException;
 import java.util.*;
-import java.util.stream.Collectors;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
-public class TaskFilterNewJar extends DefaultTask { //TODO: Copy task?
+import javax.inject.Inject;
+
+public abstract class TaskFilterNewJar extends DefaultTask { //TODO: Copy task?
     private File input;
     private File srg;
     private Set<File> blacklist = new HashSet<>();
     private File output = getProject().file("build/" + getName() + "/output.jar");
 
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
     @TaskAction
-    public void apply() throws IOException {
+    public void apply() {
+        getWorkerExecutor().noIsolation().submit(FilterNewJar.class, params -> {
+            params.getInput().set(getInput());
+            params.getSrg().set(getSrg());
+            params.getBlacklist().from(getBlacklist());
+            params.getOutput().set(getOutput());
+        });
+    }
+
+    public interface Parameters extends WorkParameters {
+        RegularFileProperty getInput();
+        RegularFileProperty getSrg();
+        ConfigurableFileCollection getBlacklist();
+        RegularFileProperty getOutput();
+    }
+
+    public static abstract class FilterNewJar implements WorkAction<Parameters> {
+        @Override
+        public void execute() {
+            Parameters params = getParameters();
+            try {
+                filter(params.getInput().get().getAsFile(), params.getSrg().get().getAsFile(), params.getBlacklist().getFiles(), params.getOutput().get().getAsFile());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static void filter(File input, File srg, Set<File> blacklist, File output) throws IOException {
         Set<String> filter = new HashSet<>();
-        for (File file : getBlacklist()) {
+        for (File file : blacklist) {
             try (ZipFile zip = new ZipFile(file)) {
                 Utils.forZip(zip, entry -> filter.add(entry.getName()));
             }
         }
 
-        Set<String> classes = new HashSet<>();
-        List<String> lines = Files.readLines(getSrg(), StandardCharsets.UTF_8).stream().map(line -> line.split("#")[0]).filter(l -> l != null & !l.trim().isEmpty()).collect(Collectors.toList());
-        lines.stream()
-        .filter(line -> !line.startsWith("\t") || (line.indexOf(':') != -1 && line.startsWith("CL:")))
-        .map(line -> line.indexOf(':') != -1 ? line.substring(4).split(" ") : line.split(" "))
-        .filter(pts -> pts.length == 2 && !pts[0].endsWith("/"))
-        .forEach(pts -> classes.add(pts[1]));
+        Set<String> classes = MappingIndex.load(srg).getMappedClasses();
 
-        try (ZipFile zin = new ZipFile(getInput());
-             ZipOutputStream out = new ZipOutputStream(new FileOutputStream(getOutput()))){
+        try (ZipFile zin = new ZipFile(input);
+             ZipOutputStream out = new ZipOutputStream(new FileOutputStream(output))){
 
             Utils.forZip(zin, entry -> {
                 if (entry.isDirectory() || filter.contains(entry.getName()) ||
@@ -78,7 +109,7 @@ public class TaskFilterNewJar extends DefaultTask { //TODO: Copy task?
     }
 
     //We pack all inner classes in binpatches. So strip anything thats a vanilla class or inner class of one.
-    private boolean isVanilla(Set<String> classes, String cls) {
+    private static boolean isVanilla(Set<String> classes, String cls) {
         int idx = cls.indexOf('$');
         if (idx != -1) {
             return isVanilla(classes, cls.substring(0, idx));
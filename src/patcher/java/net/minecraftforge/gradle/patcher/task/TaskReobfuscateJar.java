@@ -30,8 +30,9 @@ import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
 
-import com.google.common.io.Files;
-
+import net.minecraftforge.gradle.common.task.JarExec;
+import net.minecraftforge.gradle.common.util.JarRemapper;
+import net.minecraftforge.gradle.common.util.MappingIndex;
 import net.minecraftforge.gradle.common.util.MavenArtifactDownloader;
 import net.minecraftforge.gradle.common.util.Utils;
 
@@ -42,23 +43,24 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
-import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
 public class TaskReobfuscateJar extends DefaultTask {
+    private static final String[] DEFAULT_ARGS = new String[] {"--in-jar", "{input}", "--out-jar", "{output}", "--srg-in", "{srg}", "--live"};
 
     private String tool = Utils.SPECIALSOURCE;
-    private String[] args = new String[] {"--in-jar", "{input}", "--out-jar", "{output}", "--srg-in", "{srg}", "--live"};
+    private String[] args = DEFAULT_ARGS.clone();
     private FileCollection classpath = null;
     private File input;
     private File srg;
@@ -70,6 +72,29 @@ public class TaskReobfuscateJar extends DefaultTask {
 
     @TaskAction
     public void apply() throws IOException {
+        MappingIndex srg = MappingIndex.load(getSrg());
+        Set<String> packages = srg.getPackages();
+        Predicate<String> filter = name -> {
+            boolean filtered = name.startsWith("mcp/"); //MCP's annotations
+            if (!keepPackages) filtered |= isPackageInfo(packages, name);
+            if (!keepData) filtered |= !name.endsWith(".class");
+            if (filtered)
+                getLogger().debug("Filtered: " + name);
+            return !filtered;
+        };
+
+        if (!JarExec.isDefault(getTool(), getArgs(), Utils.SPECIALSOURCE, DEFAULT_ARGS)) {
+            applyExternal(filter);
+            return;
+        }
+
+        //Default tool and arguments, so we can do it ourselves without forking SpecialSource, and filter in the same pass.
+        new JarRemapper(srg.getMappings(), getClasspath() == null ? Collections.emptyList() : getClasspath().getFiles())
+            .filter(filter)
+            .remap(getInput(), getOutput());
+    }
+
+    private void applyExternal(Predicate<String> filter) throws IOException {
         File jar = MavenArtifactDownloader.gradle(getProject(), getTool(), false);
 
         Map<String, String> replace = new HashMap<>();
@@ -117,30 +142,11 @@ public class TaskReobfuscateJar extends DefaultTask {
                 });
             }).rethrowFailure().assertNormalExitValue();
 
-            List<String> lines = Files.readLines(getSrg(), StandardCharsets.UTF_8);
-            lines = lines.stream().map(line -> line.split("#")[0]).filter(l -> l != null & !l.trim().isEmpty()).collect(Collectors.toList()); //Strip empty/comments
-
-            Set<String> packages = new HashSet<>();
-            lines.stream()
-                    .filter(line -> !line.startsWith("\t") || (line.indexOf(':') != -1 && line.startsWith("CL:")))
-                    .map(line -> line.indexOf(':') != -1 ? line.substring(4).split(" ") : line.split(" "))
-                    .filter(pts -> pts.length == 2)
-                    .forEach(pts -> {
-                        int idx = pts[0].lastIndexOf('/');
-                        if (idx != -1) {
-                            packages.add(pts[0].substring(0, idx + 1) + "package-info.class");
-                        }
-                    });
-
             try (ZipFile zin = new ZipFile(output_temp);
                  ZipOutputStream out = new ZipOutputStream(new FileOutputStream(getOutput()))) {
                 for (Enumeration<? extends ZipEntry> enu = zin.entries(); enu.hasMoreElements(); ) {
                     ZipEntry entry = enu.nextElement();
-                    boolean filter = entry.isDirectory() || entry.getName().startsWith("mcp/"); //Directories and MCP's annotations
-                    if (!keepPackages) filter |= packages.contains(entry.getName());
-                    if (!keepData) filter |= !entry.getName().endsWith(".class");
-
-                    if (filter) {
+                    if (entry.isDirectory() || !filter.test(entry.getName())) {
                         log.write(("Filtered: " + entry.getName() + '\n').getBytes(StandardCharsets.UTF_8));
                         continue;
                     }
@@ -154,6 +160,12 @@ public class TaskReobfuscateJar extends DefaultTask {
         }
     }
 
+    private boolean isPackageInfo(Set<String> packages, String name) {
+        if (!name.endsWith("/package-info.class"))
+            return false;
+        return packages.contains(name.substring(0, name.length() - "/package-info.class".length()));
+    }
+
     @Input
     public String getTool() {
         return this.tool;
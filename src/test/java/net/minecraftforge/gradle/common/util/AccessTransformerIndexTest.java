@@ -0,0 +1,216 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+public class AccessTransformerIndexTest {
+    private static final int ACCESS = Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED | Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL;
+
+    @TempDir
+    Path temp;
+
+    @Test
+    public void mostPermissiveAccessWins() throws IOException {
+        Map<String, Integer> access = members(apply(
+            "protected net.minecraft.A field",
+            "public net.minecraft.A field",
+            "private net.minecraft.A field",
+            "protected net.minecraft.A *",
+            "default net.minecraft.A other",
+            "private net.minecraft.A open"
+        ));
+        assertEquals(Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL, access.get("field"));
+        //The wildcard is merged with the specific line
+        assertEquals(Opcodes.ACC_PROTECTED | Opcodes.ACC_FINAL, access.get("other"));
+        //Access is never narrowed
+        assertEquals(Opcodes.ACC_PUBLIC, access.get("open"));
+    }
+
+    @Test
+    public void removingFinalBeatsAddingIt() throws IOException {
+        Map<String, Integer> access = members(apply(
+            "public+f net.minecraft.A field",
+            "public-f net.minecraft.A field",
+            "public-f net.minecraft.A other",
+            "public+f net.minecraft.A other",
+            "private+f net.minecraft.A open"
+        ));
+        assertEquals(Opcodes.ACC_PUBLIC, access.get("field"));
+        assertEquals(Opcodes.ACC_PUBLIC, access.get("other"));
+        assertEquals(Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL, access.get("open"));
+    }
+
+    @Test
+    public void widenedPrivateMethodsAreCalledVirtually() throws IOException {
+        Map<String, byte[]> output = apply("public net.minecraft.A secret()V");
+        byte[] data = output.get("net/minecraft/A.class");
+        assertEquals(Opcodes.ACC_PUBLIC, members(data).get("secret()V"));
+        assertEquals(Opcodes.INVOKEVIRTUAL, getCallOpcode(data, "secret"));
+        //Still private, so still invokespecial
+        assertEquals(Opcodes.INVOKESPECIAL, getCallOpcode(data, "hidden"));
+    }
+
+    @Test
+    public void copiesUntargetedEntries() throws IOException {
+        Map<String, byte[]> input = input();
+        Map<String, byte[]> output = apply("public net.minecraft.A field");
+        assertEquals(input.keySet(), output.keySet());
+        //Not even a valid class, it would fail if it was parsed
+        assertArrayEquals(input.get("net/minecraft/B.class"), output.get("net/minecraft/B.class"));
+        assertArrayEquals(input.get("assets/data.txt"), output.get("assets/data.txt"));
+        assertTrue(output.containsKey("assets/"));
+    }
+
+    @Test
+    public void rejectsInvalidLines() {
+        assertThrows(IllegalArgumentException.class, () -> AccessTransformerIndex.load(Collections.emptyList(), Arrays.asList("public")));
+        assertThrows(IllegalArgumentException.class, () -> AccessTransformerIndex.load(Collections.emptyList(), Arrays.asList("friendly net.minecraft.A")));
+    }
+
+    private Map<String, byte[]> apply(String... lines) throws IOException {
+        File input = temp.resolve("input.jar").toFile();
+        try (ZipOutputStream zout = new ZipOutputStream(new FileOutputStream(input))) {
+            for (Map.Entry<String, byte[]> e : input().entrySet()) {
+                zout.putNextEntry(new ZipEntry(e.getKey()));
+                zout.write(e.getValue());
+                zout.closeEntry();
+            }
+        }
+
+        File output = temp.resolve("output.jar").toFile();
+        AccessTransformerIndex.load(Collections.emptyList(), Collections.singletonList(String.join("\n", lines))).apply(input, output);
+
+        Map<String, byte[]> ret = new HashMap<>();
+        try (ZipFile zip = new ZipFile(output)) {
+            Utils.forZip(zip, e -> {
+                try (InputStream is = zip.getInputStream(e)) {
+                    ret.put(e.getName(), IOUtils.toByteArray(is));
+                }
+            });
+        }
+        return ret;
+    }
+
+    private static Map<String, byte[]> input() {
+        Map<String, byte[]> ret = new LinkedHashMap<>();
+        ret.put("assets/", new byte[0]);
+        ret.put("assets/data.txt", "data".getBytes(StandardCharsets.UTF_8));
+        ret.put("net/minecraft/A.class", target());
+        ret.put("net/minecraft/B.class", "not a class".getBytes(StandardCharsets.UTF_8));
+        return ret;
+    }
+
+    // class A { private final int field, other; public int open; private void secret() {} private void hidden() {} void call() { secret(); hidden(); } }
+    private static byte[] target() {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_8, 0, "net/minecraft/A", null, "java/lang/Object", null);
+        writer.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "field", "I", null, null).visitEnd();
+        writer.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "other", "I", null, null).visitEnd();
+        writer.visitField(Opcodes.ACC_PUBLIC, "open", "I", null, null).visitEnd();
+        for (String name : new String[] { "secret", "hidden" }) {
+            MethodVisitor mv = writer.visitMethod(Opcodes.ACC_PRIVATE, name, "()V", null, null);
+            mv.visitCode();
+            mv.visitInsn(Opcodes.RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+        MethodVisitor mv = writer.visitMethod(0, "call", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "net/minecraft/A", "secret", "()V", false);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "net/minecraft/A", "hidden", "()V", false);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static Map<String, Integer> members(Map<String, byte[]> output) {
+        return members(output.get("net/minecraft/A.class"));
+    }
+
+    //Fields by name, methods by name and descriptor, with only their access and final flags
+    private static Map<String, Integer> members(byte[] data) {
+        Map<String, Integer> ret = new HashMap<>();
+        new ClassReader(data).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                ret.put(name, access & ACCESS);
+                return null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                ret.put(name + descriptor, access & ACCESS);
+                return null;
+            }
+        }, 0);
+        return ret;
+    }
+
+    private static int getCallOpcode(byte[] data, String target) {
+        int[] ret = { -1 };
+        new ClassReader(data).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM9) {
+                    @Override
+                    public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+                        if (name.equals(target))
+                            ret[0] = opcode;
+                    }
+                };
+            }
+        }, 0);
+        return ret[0];
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.nothome.delta.Delta;
+import com.nothome.delta.GDiffWriter;
+
+import lzma.streams.LzmaOutputStream;
+
+public class BinPatcherTest {
+    private static final Map<String, byte[]> CLEAN = new LinkedHashMap<>();
+    private static final Map<String, byte[]> DIRTY = new LinkedHashMap<>();
+    static {
+        CLEAN.put("a.class", bytes("class a, clean"));
+        CLEAN.put("a$1.class", bytes("class a$1, clean"));
+        CLEAN.put("b.class", bytes("class b, removed"));
+        CLEAN.put("c.class", bytes("class c, untouched"));
+        CLEAN.put("assets/data.txt", bytes("data"));
+
+        DIRTY.put("a.class", bytes("class a, patched by forge"));
+        DIRTY.put("a$1.class", bytes("class a$1, also patched"));
+        DIRTY.put("c.class", bytes("class c, untouched"));
+        DIRTY.put("d.class", bytes("class d, added by forge"));
+        DIRTY.put("assets/data.txt", bytes("data"));
+    }
+
+    @TempDir
+    Path temp;
+
+    @Test
+    public void roundTrip() throws IOException {
+        File clean = jar("clean.jar", CLEAN);
+        File patches = temp.resolve("patches.lzma").toFile();
+        BinPatcher.create(clean, jar("dirty.jar", DIRTY), patches, null, null, "binpatch/client");
+
+        Map<String, List<BinPatcher.Patch>> loaded = BinPatcher.load(patches, "binpatch/client");
+        assertEquals(new HashSet<>(Arrays.asList("a", "a$1", "b", "d")), loaded.keySet());
+        assertTrue(BinPatcher.load(patches, "binpatch/server").isEmpty());
+
+        File output = temp.resolve("output.jar").toFile();
+        BinPatcher.apply(clean, output, loaded, true, true);
+        assertJar(DIRTY, output);
+    }
+
+    @Test
+    public void roundTripOnlyPatched() throws IOException {
+        File clean = jar("clean.jar", CLEAN);
+        File patches = temp.resolve("patches.lzma").toFile();
+        BinPatcher.create(clean, jar("dirty.jar", DIRTY), patches, null, new HashSet<>(Arrays.asList("a")), null);
+
+        //Inner classes come along with their outer class
+        Map<String, List<BinPatcher.Patch>> loaded = BinPatcher.load(patches, null);
+        assertEquals(new HashSet<>(Arrays.asList("a", "a$1")), loaded.keySet());
+
+        File output = temp.resolve("output.jar").toFile();
+        BinPatcher.apply(clean, output, loaded, false, false);
+        Map<String, byte[]> expected = new TreeMap<>();
+        expected.put("a.class", DIRTY.get("a.class"));
+        expected.put("a$1.class", DIRTY.get("a$1.class"));
+        assertJar(expected, output);
+    }
+
+    /*
+     * Patches written the way BinaryPatcher writes them, rather than by BinPatcher itself,
+     * must give exactly the same classes, including its checksum, 'exists' flag and removed classes.
+     */
+    @Test
+    public void appliesBinaryPatcherPatches() throws IOException {
+        File clean = jar("clean.jar", CLEAN);
+        Map<String, byte[]> patches = new TreeMap<>();
+        patches.put("binpatch/client/a.binpatch", binaryPatcher("a", CLEAN.get("a.class"), DIRTY.get("a.class")));
+        patches.put("binpatch/client/b.binpatch", binaryPatcher("b", CLEAN.get("b.class"), null));
+        patches.put("binpatch/client/d.binpatch", binaryPatcher("d", null, DIRTY.get("d.class")));
+        patches.put("binpatch/server/c.binpatch", binaryPatcher("c", CLEAN.get("c.class"), bytes("server only")));
+
+        File output = temp.resolve("output.jar").toFile();
+        BinPatcher.apply(clean, output, BinPatcher.load(lzma("patches.lzma", patches), "binpatch/client"), true, true);
+
+        //No patch for the inner class here, so it stays clean
+        Map<String, byte[]> expected = new TreeMap<>(DIRTY);
+        expected.put("a$1.class", CLEAN.get("a$1.class"));
+        assertJar(expected, output);
+    }
+
+    @Test
+    public void rejectsWrongChecksum() throws IOException {
+        File clean = jar("clean.jar", CLEAN);
+        Map<String, byte[]> patches = new TreeMap<>();
+        patches.put("a.binpatch", binaryPatcher("a", bytes("some other class a"), DIRTY.get("a.class")));
+
+        File patch = lzma("patches.lzma", patches);
+        IOException e = assertThrows(IOException.class, () -> BinPatcher.apply(clean, temp.resolve("output.jar").toFile(), BinPatcher.load(patch, null), true, true));
+        assertTrue(e.getMessage().contains("checksum"), e.getMessage());
+    }
+
+    @Test
+    public void rejectsMissingClass() throws IOException {
+        File clean = jar("clean.jar", CLEAN);
+        Map<String, byte[]> patches = new TreeMap<>();
+        patches.put("e.binpatch", binaryPatcher("e", bytes("class e, missing from the clean jar"), DIRTY.get("a.class")));
+
+        File patch = lzma("patches.lzma", patches);
+        IOException e = assertThrows(IOException.class, () -> BinPatcher.apply(clean, temp.resolve("output.jar").toFile(), BinPatcher.load(patch, null), true, true));
+        assertTrue(e.getMessage().contains("to exist"), e.getMessage());
+    }
+
+    @Test
+    public void rejectsExistingNewClass() throws IOException {
+        File clean = jar("clean.jar", CLEAN);
+        Map<String, byte[]> patches = new TreeMap<>();
+        patches.put("c.binpatch", binaryPatcher("c", null, DIRTY.get("d.class")));
+
+        File patch = lzma("patches.lzma", patches);
+        IOException e = assertThrows(IOException.class, () -> BinPatcher.apply(clean, temp.resolve("output.jar").toFile(), BinPatcher.load(patch, null), true, true));
+        assertTrue(e.getMessage().contains("to not exist"), e.getMessage());
+    }
+
+    //Same layout as BinaryPatcher's Patch.toBytes
+    private static byte[] binaryPatcher(String name, byte[] clean, byte[] dirty) throws IOException {
+        ByteArrayOutputStream diff = new ByteArrayOutputStream();
+        if (dirty != null)
+            new Delta().compute(clean == null ? new byte[0] : clean, dirty, new GDiffWriter(new DataOutputStream(diff)));
+
+        ByteArrayOutputStream ret = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(ret);
+        out.writeByte(1);
+        out.writeUTF(name);
+        out.writeUTF(name);
+        out.writeBoolean(clean != null);
+        if (clean != null)
+            out.writeInt(BinPatcher.checksum(clean));
+        out.writeInt(diff.size());
+        diff.writeTo(out);
+        out.flush();
+        return ret.toByteArray();
+    }
+
+    private File lzma(String name, Map<String, byte[]> entries) throws IOException {
+        File ret = temp.resolve(name).toFile();
+        try (OutputStream out = new LzmaOutputStream.Builder(new FileOutputStream(ret)).useEndMarkerMode(true).build()) {
+            out.write(Files.readAllBytes(jar(name + ".jar", entries).toPath()));
+        }
+        return ret;
+    }
+
+    private File jar(String name, Map<String, byte[]> entries) throws IOException {
+        File ret = temp.resolve(name).toFile();
+        try (ZipOutputStream zout = new ZipOutputStream(new FileOutputStream(ret))) {
+            for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+                zout.putNextEntry(new ZipEntry(e.getKey()));
+                zout.write(e.getValue());
+                zout.closeEntry();
+            }
+        }
+        return ret;
+    }
+
+    private static void assertJar(Map<String, byte[]> expected, File jar) throws IOException {
+        Map<String, byte[]> actual = new TreeMap<>();
+        try (ZipFile zip = new ZipFile(jar)) {
+            Utils.forZip(zip, e -> {
+                try (InputStream is = zip.getInputStream(e)) {
+                    actual.put(e.getName(), IOUtils.toByteArray(is));
+                }
+            });
+        }
+        assertEquals(new TreeMap<>(expected).keySet(), actual.keySet());
+        for (Map.Entry<String, byte[]> e : expected.entrySet())
+            assertArrayEquals(e.getValue(), actual.get(e.getKey()), e.getKey());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
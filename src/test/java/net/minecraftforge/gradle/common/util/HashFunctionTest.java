@@ -0,0 +1,99 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class HashFunctionTest {
+    //Inputs whose digests start with two zero bytes, which is where a hex encoder can drop or misplace padding
+    private static final String[][] LEADING_ZEROS = {
+        { "MD5",    "leading48360"  },
+        { "SHA1",   "leading208956" },
+        { "SHA256", "leading30413"  },
+        { "SHA512", "leading10504"  }
+    };
+
+    @TempDir
+    Path temp;
+
+    @Test
+    public void matchesPaddedBigInteger() throws IOException {
+        for (HashFunction func : HashFunction.values()) {
+            for (String data : new String[] { "", "abc", "The quick brown fox jumps over the lazy dog" })
+                check(func, data);
+        }
+    }
+
+    @Test
+    public void keepsLeadingZeros() throws IOException {
+        for (String[] entry : LEADING_ZEROS) {
+            HashFunction func = HashFunction.valueOf(entry[0]);
+            assertEquals("0000", expected(func, entry[1].getBytes(StandardCharsets.UTF_8)).substring(0, 4), entry[0]);
+            check(func, entry[1]);
+        }
+    }
+
+    @Test
+    public void hashAllMatchesSingle() throws IOException {
+        File file = temp.resolve("data.bin").toFile();
+        byte[] data = new byte[200000]; //Bigger than the read buffer
+        for (int x = 0; x < data.length; x++)
+            data[x] = (byte)(x * 31);
+        Files.write(file.toPath(), data);
+
+        Map<HashFunction, String> all = HashFunction.hashAll(file, HashFunction.values());
+        for (HashFunction func : HashFunction.values()) {
+            assertEquals(expected(func, data), all.get(func), func.name());
+            assertEquals(expected(func, data), func.hash(file), func.name());
+        }
+    }
+
+    private void check(HashFunction func, String data) throws IOException {
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        String expected = expected(func, bytes);
+        File file = temp.resolve(func.name() + ".txt").toFile();
+        Files.write(file.toPath(), bytes);
+
+        assertEquals(expected, func.hash(data), func.name() + " string");
+        assertEquals(expected, func.hash(bytes), func.name() + " bytes");
+        assertEquals(expected, func.hash(new ByteArrayInputStream(bytes)), func.name() + " stream");
+        assertEquals(expected, func.hash(file), func.name() + " file");
+        assertEquals(expected, func.hash(Arrays.asList(file)), func.name() + " files");
+    }
+
+    //What HashFunction used to return
+    private static String expected(HashFunction func, byte[] data) {
+        return func.pad(new BigInteger(1, func.get().digest(data)).toString(16));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class HashStoreTest {
+    @TempDir
+    Path temp;
+
+    @Test
+    public void migratesLegacyStoreAddedBeforeLoad() throws IOException {
+        File input = input("input");
+        File cache = legacy(input, "1");
+
+        HashStore store = new HashStore(temp.toFile()).add("version", "1").add(input).load(cache);
+        assertTrue(store.isSame());
+        store.save();
+
+        List<String> lines = Files.readAllLines(cache.toPath(), StandardCharsets.UTF_8);
+        assertEquals("#fingerprint=" + HashStore.FINGERPRINT.name(), lines.get(0));
+        assertTrue(new HashStore(temp.toFile()).add("version", "1").add(input).load(cache).isSame());
+    }
+
+    @Test
+    public void migratesLegacyStoreLoadedBeforeAdd() throws IOException {
+        File input = input("input");
+        File cache = legacy(input, "1");
+
+        HashStore store = new HashStore(temp.toFile()).load(cache);
+        assertTrue(store.isSame(input));
+        store.add("version", "1");
+        assertTrue(store.isSame());
+        store.save();
+
+        store = new HashStore(temp.toFile()).load(cache);
+        assertTrue(store.isSame(input));
+        assertTrue(store.add("version", "1").isSame());
+    }
+
+    @Test
+    public void legacyStoreDetectsChanges() throws IOException {
+        File input = input("input");
+        File cache = legacy(input, "1");
+
+        assertFalse(new HashStore(temp.toFile()).add("version", "2").add(input).load(cache).isSame());
+        assertFalse(new HashStore(temp.toFile()).load(cache).add("version", "2").add(input).isSame());
+
+        Files.write(input.toPath(), "changed".getBytes(StandardCharsets.UTF_8));
+        assertFalse(new HashStore(temp.toFile()).add("version", "1").add(input).load(cache).isSame());
+        assertFalse(new HashStore(temp.toFile()).load(cache).add("version", "1").add(input).isSame());
+    }
+
+    @Test
+    public void bustsLegacyStore() throws IOException {
+        File input = input("input");
+        File cache = legacy(input, "1");
+        Files.write(cache.toPath(), "\nCACHE_BUSTER=1".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        assertTrue(new HashStore(temp.toFile()).bust(1).add("version", "1").add(input).load(cache).isSame());
+        assertFalse(new HashStore(temp.toFile()).bust(2).add("version", "1").add(input).load(cache).isSame());
+    }
+
+    private File input(String data) throws IOException {
+        File ret = temp.resolve("input.txt").toFile();
+        Files.write(ret.toPath(), data.getBytes(StandardCharsets.UTF_8));
+        return ret;
+    }
+
+    //What older versions wrote: SHA1 hashes, and no header.
+    private File legacy(File input, String version) throws IOException {
+        File ret = temp.resolve("cache.sha1").toFile();
+        String data = "version=" + HashFunction.SHA1.hash(version.getBytes(StandardCharsets.UTF_8)) + '\n' +
+            '/' + input.getName() + '=' + HashFunction.SHA1.hash(input);
+        Files.write(ret.toPath(), data.getBytes(StandardCharsets.UTF_8));
+        return ret;
+    }
+}
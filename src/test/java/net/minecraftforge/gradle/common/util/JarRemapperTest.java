@@ -0,0 +1,202 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import net.minecraftforge.srgutils.IMappingFile;
+
+public class JarRemapperTest {
+    private static final String SAM = "(Ljava/lang/String;)V";
+    private static final Handle METAFACTORY = new Handle(Opcodes.H_INVOKESTATIC, "java/lang/invoke/LambdaMetafactory", "metafactory",
+        "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;", false);
+    private static final String MAPPINGS = String.join("\n",
+        "CL: a net/minecraft/Callback",
+        "MD: a/a " + SAM + " net/minecraft/Callback/run " + SAM,
+        "CL: b net/minecraft/Caller",
+        "CL: c net/minecraft/NamedCallback",
+        "");
+
+    @TempDir
+    Path temp;
+
+    @Test
+    public void remapsLambdaOverObfuscatedInterface() throws IOException {
+        Map<String, byte[]> output = remap(null, iface("a", null), caller("b", "a"));
+        assertEquals("run", getLambdaName(output.get("net/minecraft/Caller.class")));
+    }
+
+    @Test
+    public void remapsLambdaOverInheritedMethod() throws IOException {
+        //c doesn't declare the method itself, so it has to be found through the hierarchy
+        Map<String, byte[]> output = remap(null, iface("a", null), iface("c", "a"), caller("b", "c"));
+        assertEquals("run", getLambdaName(output.get("net/minecraft/Caller.class")));
+    }
+
+    @Test
+    public void cachedLambdaStaysRemapped() throws IOException {
+        File cache = temp.resolve("cache").toFile();
+        remap(cache, iface("a", null), caller("b", "a"));
+        //Unrelated classes coming and going must not change cached results
+        Map<String, byte[]> output = remap(cache, iface("a", null), iface("c", "a"), caller("b", "a"));
+        assertEquals("run", getLambdaName(output.get("net/minecraft/Caller.class")));
+    }
+
+    @Test
+    public void pruneKeepsOtherWritersTempFiles() throws IOException {
+        File cache = temp.resolve("cache").toFile();
+        remap(cache, iface("a", null));
+        File fresh = new File(cache, "fresh.class.tmp");
+        File stale = new File(cache, "stale.class.tmp");
+        assertTrue(fresh.createNewFile());
+        assertTrue(stale.createNewFile());
+        assertTrue(stale.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)));
+
+        remap(cache, iface("a", null));
+        assertTrue(fresh.exists());
+        assertFalse(stale.exists());
+    }
+
+    @Test
+    public void keepsDirectories() throws IOException {
+        Map<String, byte[]> output = remap(null, Arrays.asList("a/", "assets/"), iface("a", null));
+        assertTrue(output.containsKey("a/"));
+        assertTrue(output.containsKey("assets/"));
+        assertTrue(output.containsKey("net/minecraft/Callback.class"));
+    }
+
+    private Map<String, byte[]> remap(File cache, byte[]... classes) throws IOException {
+        return remap(cache, Collections.emptyList(), classes);
+    }
+
+    private Map<String, byte[]> remap(File cache, List<String> directories, byte[]... classes) throws IOException {
+        File input = temp.resolve("input.jar").toFile();
+        File output = temp.resolve("output.jar").toFile();
+        try (ZipOutputStream zout = new ZipOutputStream(new FileOutputStream(input))) {
+            for (String dir : directories) {
+                zout.putNextEntry(new ZipEntry(dir));
+                zout.closeEntry();
+            }
+            for (byte[] data : classes) {
+                zout.putNextEntry(new ZipEntry(new ClassReader(data).getClassName() + ".class"));
+                zout.write(data);
+                zout.closeEntry();
+            }
+        }
+
+        IMappingFile mappings = IMappingFile.load(new ByteArrayInputStream(MAPPINGS.getBytes(StandardCharsets.UTF_8)));
+        JarRemapper remapper = new JarRemapper(mappings, Collections.emptyList());
+        if (cache != null)
+            remapper.cache(cache, "test");
+        remapper.remap(input, output);
+
+        Map<String, byte[]> ret = new HashMap<>();
+        try (ZipFile zip = new ZipFile(output)) {
+            Utils.forZip(zip, e -> {
+                try (InputStream is = zip.getInputStream(e)) {
+                    ret.put(e.getName(), IOUtils.toByteArray(is));
+                }
+            });
+        }
+        return ret;
+    }
+
+    private static byte[] iface(String name, String parent) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT, name, null, "java/lang/Object",
+            parent == null ? null : new String[] { parent });
+        if (parent == null)
+            writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "a", SAM, null, null).visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    // static <iface> make() { return s -> {}; }
+    private static byte[] caller(String name, String iface) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+
+        MethodVisitor mv = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "make", "()L" + iface + ';', null, null);
+        mv.visitCode();
+        mv.visitInvokeDynamicInsn("a", "()L" + iface + ';', METAFACTORY, Type.getMethodType(SAM),
+            new Handle(Opcodes.H_INVOKESTATIC, name, "lambda$make$0", SAM, false), Type.getMethodType(SAM));
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = writer.visitMethod(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC, "lambda$make$0", SAM, null, null);
+        mv.visitCode();
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static String getLambdaName(byte[] data) {
+        assertNotNull(data);
+        String[] ret = new String[1];
+        new ClassReader(data).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM9) {
+                    @Override
+                    public void visitInvokeDynamicInsn(String name, String descriptor, Handle bsm, Object... bsmArgs) {
+                        ret[0] = name;
+                    }
+                };
+            }
+        }, 0);
+        return ret[0];
+    }
+}
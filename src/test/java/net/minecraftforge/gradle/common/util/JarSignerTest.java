@@ -0,0 +1,152 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class JarSignerTest {
+    private static final String PASSWORD = "password";
+
+    @TempDir
+    Path temp;
+
+    @Test
+    public void signsRsa() throws Exception {
+        verify("RSA");
+    }
+
+    @Test
+    public void signsEc() throws Exception {
+        verify("EC");
+    }
+
+    @Test
+    public void skipsFilteredEntries() throws Exception {
+        Map<String, byte[]> entries = entries();
+        File signed = sign("RSA", entries, name -> !name.startsWith("data/"));
+        try (JarFile jar = new JarFile(signed, true)) {
+            JarEntry entry = jar.getJarEntry("data/plain.txt");
+            assertArrayEquals(entries.get("data/plain.txt"), read(jar, entry));
+            assertNull(entry.getCodeSigners());
+            assertNotNull(jar.getManifest().getAttributes("net/minecraft/Main.class"));
+        }
+    }
+
+    private void verify(String algorithm) throws Exception {
+        Map<String, byte[]> entries = entries();
+        File signed = sign(algorithm, entries, name -> true);
+        try (JarFile jar = new JarFile(signed, true)) {
+            assertEquals("net.minecraft.Main", jar.getManifest().getMainAttributes().getValue("Main-Class"));
+            for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+                if (e.getKey().endsWith("/") || e.getKey().startsWith("META-INF/"))
+                    continue;
+                JarEntry entry = jar.getJarEntry(e.getKey());
+                assertNotNull(entry, e.getKey());
+                //Code signers are only known once the entry has been read completely, which also checks the digest
+                assertArrayEquals(e.getValue(), read(jar, entry), e.getKey());
+                assertNotNull(entry.getCodeSigners(), e.getKey());
+            }
+            assertNotNull(jar.getJarEntry("assets/"));
+        }
+    }
+
+    private Map<String, byte[]> entries() {
+        Map<String, byte[]> ret = new LinkedHashMap<>();
+        ret.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\nMain-Class: net.minecraft.Main\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+        ret.put("assets/", new byte[0]);
+        ret.put("net/minecraft/Main.class", new byte[] { (byte)0xCA, (byte)0xFE, (byte)0xBA, (byte)0xBE });
+        ret.put("data/plain.txt", "plain".getBytes(StandardCharsets.UTF_8));
+        //Long enough that the Name: line has to wrap, more than once
+        ret.put("assets/" + String.join("", Collections.nCopies(20, "long_directory/")) + "file.json", "{}".getBytes(StandardCharsets.UTF_8));
+        //Multi-byte characters all the way through, so at least one of them lands on the 72 byte boundary
+        ret.put("assets/" + String.join("", Collections.nCopies(30, "\u00e9\u65e5")) + ".txt", "utf8".getBytes(StandardCharsets.UTF_8));
+        ret.put("assets/\ud83d\ude00" + String.join("", Collections.nCopies(40, "\u00fc")) + ".txt", "emoji".getBytes(StandardCharsets.UTF_8));
+        return ret;
+    }
+
+    private File sign(String algorithm, Map<String, byte[]> entries, Predicate<String> filter) throws IOException, GeneralSecurityException, InterruptedException {
+        File input = temp.resolve("input.jar").toFile();
+        try (ZipOutputStream zout = new ZipOutputStream(new FileOutputStream(input))) {
+            for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+                zout.putNextEntry(new ZipEntry(e.getKey()));
+                zout.write(e.getValue());
+                zout.closeEntry();
+            }
+        }
+
+        KeyStore keys = keyStore(algorithm);
+        PrivateKey key = (PrivateKey)keys.getKey("test", PASSWORD.toCharArray());
+        File output = temp.resolve("output-" + algorithm + ".jar").toFile();
+        new JarSigner("test", key, keys.getCertificateChain("test")).sign(input, output, filter);
+        return output;
+    }
+
+    //There's no public API to make a certificate, so let the JDK's keytool do it.
+    private KeyStore keyStore(String algorithm) throws IOException, GeneralSecurityException, InterruptedException {
+        File file = temp.resolve(algorithm + ".jks").toFile();
+        String keytool = Paths.get(System.getProperty("java.home"), "bin", "keytool").toString();
+        Process process = new ProcessBuilder(keytool, "-genkeypair", "-keystore", file.getAbsolutePath(), "-storetype", "JKS",
+            "-storepass", PASSWORD, "-keypass", PASSWORD, "-alias", "test", "-keyalg", algorithm, "-dname", "CN=ForgeGradle Test",
+            "-validity", "1")
+            .redirectErrorStream(true).start();
+        String log = IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8);
+        assertEquals(0, process.waitFor(), log);
+
+        KeyStore ret = KeyStore.getInstance("JKS");
+        try (InputStream is = new FileInputStream(file)) {
+            ret.load(is, PASSWORD.toCharArray());
+        }
+        return ret;
+    }
+
+    private static byte[] read(JarFile jar, JarEntry entry) throws IOException {
+        try (InputStream is = jar.getInputStream(entry)) {
+            return IOUtils.toByteArray(is);
+        }
+    }
+}
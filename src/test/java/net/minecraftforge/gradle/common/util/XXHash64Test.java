@@ -0,0 +1,81 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class XXHash64Test {
+    @TempDir
+    Path temp;
+
+    @Test
+    public void knownVectors() {
+        assertEquals("ef46db3751d8e999", XXHash64.hash(new byte[0]));
+        assertEquals("44bc2cf5ad770999", XXHash64.hash(bytes("abc")));
+        assertEquals("fbcea83c8a378bf1", XXHash64.hash(bytes("Nobody inspects the spammish repetition")));
+    }
+
+    //Either side of the 32 byte stripe, and a leading zero that needs padding
+    @Test
+    public void stripeBoundaries() {
+        assertEquals("c346d2b59b4d8ee1", XXHash64.hash(sequence(31)));
+        assertEquals("cbf59c5116ff32b4", XXHash64.hash(sequence(32)));
+        assertEquals("0c535d1acafb8ead", XXHash64.hash(sequence(33)));
+        assertEquals("e26aa9e2a95f8e4f", XXHash64.hash(sequence(63)));
+        assertEquals("f7c67301db6713f0", XXHash64.hash(sequence(64)));
+    }
+
+    @Test
+    public void streamingMatchesSingleUpdate() throws IOException {
+        byte[] data = sequence(200);
+        assertEquals("50dc1079b99e879c", XXHash64.hash(data));
+        for (int chunk : new int[] { 1, 3, 7, 31, 32, 33, 100 }) {
+            XXHash64 hash = new XXHash64();
+            for (int x = 0; x < data.length; x += chunk)
+                hash.update(data, x, Math.min(chunk, data.length - x));
+            assertEquals(XXHash64.hash(data), hash.toHex(), "Chunk size " + chunk);
+        }
+
+        File file = temp.resolve("data.bin").toFile();
+        Files.write(file.toPath(), data);
+        assertEquals(XXHash64.hash(data), XXHash64.hash(file));
+    }
+
+    private static byte[] sequence(int length) {
+        byte[] ret = new byte[length];
+        for (int x = 0; x < length; x++)
+            ret[x] = (byte)x;
+        return ret;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
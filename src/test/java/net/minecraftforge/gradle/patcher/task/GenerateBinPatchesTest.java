@@ -0,0 +1,145 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.patcher.task;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.minecraftforge.gradle.common.task.ApplyBinPatches;
+import net.minecraftforge.gradle.common.util.BinPatcher;
+import net.minecraftforge.gradle.common.util.Utils;
+
+/**
+ * GenerateBinPatches and ApplyBinPatches with their default arguments, which both run in process.
+ */
+public class GenerateBinPatchesTest {
+    private static final String MAPPINGS = String.join("\n",
+        "CL: net/minecraft/world/World a",
+        "CL: net/minecraft/block/Block b",
+        "");
+
+    @TempDir
+    Path temp;
+
+    @Test
+    public void generateThenApply() throws IOException {
+        Map<String, byte[]> clean = new LinkedHashMap<>();
+        clean.put("a.class", bytes("world, clean"));
+        clean.put("a$1.class", bytes("world inner, clean"));
+        clean.put("b.class", bytes("block, clean"));
+        Map<String, byte[]> dirty = new LinkedHashMap<>();
+        dirty.put("a.class", bytes("world, patched"));
+        dirty.put("a$1.class", bytes("world inner, patched"));
+        dirty.put("b.class", bytes("block, changed but has no source patch"));
+
+        //Only classes with a source patch get binary patches
+        File patches = temp.resolve("patches/net/minecraft/world").toFile();
+        patches.mkdirs();
+        Files.write(new File(patches, "World.java.patch").toPath(), bytes("patch"));
+        File srg = temp.resolve("mcp_to_obf.srg").toFile();
+        Files.write(srg.toPath(), bytes(MAPPINGS));
+
+        Project project = ProjectBuilder.builder().withProjectDir(temp.resolve("project").toFile()).build();
+        File binpatches = temp.resolve("client.lzma").toFile();
+        GenerateBinPatches generate = project.getTasks().create("generateBinPatches", GenerateBinPatches.class);
+        generate.setCleanJar(jar("clean.jar", clean));
+        generate.setDirtyJar(jar("dirty.jar", dirty));
+        generate.setSrg(srg);
+        generate.addPatchSet(temp.resolve("patches").toFile());
+        generate.setOutput(binpatches);
+        assertNull(generate.getToolJar());
+        generate.apply();
+
+        //Named by their SRG name, inner classes included
+        Map<String, BinPatcher.Patch> loaded = new TreeMap<>();
+        BinPatcher.load(binpatches, null).forEach((k, v) -> loaded.put(k, v.get(0)));
+        assertEquals(new HashSet<>(Arrays.asList("a", "a$1")), loaded.keySet());
+        assertEquals("net/minecraft/world/World", loaded.get("a").getSrg());
+        assertEquals("net/minecraft/world/World$1", loaded.get("a$1").getSrg());
+
+        File output = temp.resolve("output.jar").toFile();
+        ApplyBinPatches apply = project.getTasks().create("applyBinPatches", ApplyBinPatches.class);
+        apply.setClean(jar("clean.jar", clean));
+        apply.setPatch(binpatches);
+        apply.setOutput(output);
+        assertNull(apply.getToolJar());
+        apply.apply();
+
+        Map<String, byte[]> expected = new TreeMap<>();
+        expected.put("a.class", dirty.get("a.class"));
+        expected.put("a$1.class", dirty.get("a$1.class"));
+        Map<String, byte[]> actual = read(output);
+        assertEquals(expected.keySet(), actual.keySet());
+        for (String name : expected.keySet())
+            assertArrayEquals(expected.get(name), actual.get(name), name);
+    }
+
+    private File jar(String name, Map<String, byte[]> entries) throws IOException {
+        File ret = temp.resolve(name).toFile();
+        try (ZipOutputStream zout = new ZipOutputStream(new FileOutputStream(ret))) {
+            for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+                zout.putNextEntry(new ZipEntry(e.getKey()));
+                zout.write(e.getValue());
+                zout.closeEntry();
+            }
+        }
+        return ret;
+    }
+
+    private static Map<String, byte[]> read(File file) throws IOException {
+        Map<String, byte[]> ret = new TreeMap<>();
+        try (ZipFile zip = new ZipFile(file)) {
+            Utils.forZip(zip, e -> {
+                try (InputStream is = zip.getInputStream(e)) {
+                    ret.put(e.getName(), IOUtils.toByteArray(is));
+                }
+            });
+        }
+        return ret;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.userdev.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import net.minecraftforge.gradle.common.util.Utils;
+
+/**
+ * The remapped binary findRaw serves, SRG to MCP names with the default tool, which is done in process rather than by forking SpecialSource.
+ */
+public class RenameJarTest {
+    private static final String CLASS = "net/minecraft/world/World";
+    private static final String MAPPINGS = String.join("\n",
+        "CL: " + CLASS + " " + CLASS,
+        "FD: " + CLASS + "/field_72995_K " + CLASS + "/isRemote",
+        "MD: " + CLASS + "/func_72835_b ()V " + CLASS + "/tick ()V",
+        "");
+    private static final byte[] RESOURCE = "resource".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path temp;
+
+    @Test
+    public void remapsToMcpNames() throws IOException {
+        Project project = ProjectBuilder.builder().withProjectDir(temp.resolve("project").toFile()).build();
+        File output = temp.resolve("output.jar").toFile();
+
+        RenameJar rename = project.getTasks().create("renameJar", RenameJar.class);
+        rename.setHasLog(false);
+        rename.setInput(createInput());
+        rename.setOutput(output);
+        rename.setMappings(createMappings());
+        //Default tool and arguments, so there's nothing to download.
+        assertNull(rename.getToolJar());
+        rename.apply();
+
+        check(read(output));
+    }
+
+    @Test
+    public void remapsInPlace() throws IOException {
+        Project project = ProjectBuilder.builder().withProjectDir(temp.resolve("project").toFile()).build();
+        File input = createInput();
+
+        RenameJarInPlace rename = project.getTasks().create("renameJarInPlace", RenameJarInPlace.class);
+        rename.setHasLog(false);
+        rename.setInput(input);
+        rename.setMappings(createMappings());
+        assertNull(rename.getToolJar());
+        rename.apply();
+
+        check(read(input));
+    }
+
+    private static void check(Map<String, byte[]> output) {
+        assertArrayEquals(RESOURCE, output.get("assets/minecraft/lang/en_us.json"));
+        assertTrue(output.containsKey("assets/"));
+
+        Set<String> members = new TreeSet<>();
+        new ClassReader(output.get(CLASS + ".class")).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                members.add(name);
+                return null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                members.add(name);
+                return null;
+            }
+        }, 0);
+        assertEquals(new TreeSet<>(Arrays.asList("isRemote", "tick")), members);
+    }
+
+    private File createMappings() throws IOException {
+        File ret = temp.resolve("srg_to_mcp.srg").toFile();
+        Files.write(ret.toPath(), MAPPINGS.getBytes(StandardCharsets.UTF_8));
+        return ret;
+    }
+
+    private File createInput() throws IOException {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, CLASS, null, "java/lang/Object", null);
+        writer.visitField(Opcodes.ACC_PUBLIC, "field_72995_K", "Z", null, null).visitEnd();
+        writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "func_72835_b", "()V", null, null).visitEnd();
+        writer.visitEnd();
+
+        File ret = temp.resolve("input.jar").toFile();
+        try (ZipOutputStream zout = new ZipOutputStream(new FileOutputStream(ret))) {
+            zout.putNextEntry(new ZipEntry("assets/"));
+            zout.closeEntry();
+            zout.putNextEntry(new ZipEntry("assets/minecraft/lang/en_us.json"));
+            zout.write(RESOURCE);
+            zout.closeEntry();
+            zout.putNextEntry(new ZipEntry(CLASS + ".class"));
+            zout.write(writer.toByteArray());
+            zout.closeEntry();
+        }
+        return ret;
+    }
+
+    private static Map<String, byte[]> read(File file) throws IOException {
+        Map<String, byte[]> ret = new HashMap<>();
+        try (ZipFile zip = new ZipFile(file)) {
+            Utils.forZip(zip, e -> {
+                try (InputStream is = zip.getInputStream(e)) {
+                    ret.put(e.getName(), IOUtils.toByteArray(is));
+                }
+            });
+        }
+        return ret;
+    }
+}
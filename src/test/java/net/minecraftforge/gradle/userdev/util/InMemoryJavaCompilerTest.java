@@ -0,0 +1,120 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.userdev.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.logging.Logging;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class InMemoryJavaCompilerTest {
+    @TempDir
+    Path temp;
+
+    //Every package references the others, with constants, nested classes, generics and lambdas crossing the batches.
+    @Test
+    public void partitionedMatchesSingle() throws IOException {
+        File src = temp.resolve("src").toFile();
+        write(src, "a/A.java",
+            "package a;\n" +
+            "import b.B;\n" +
+            "import c.C;\n" +
+            "public class A {\n" +
+            "    public static final int VALUE = B.VALUE + 1;\n" +
+            "    public static final String NAME = \"a\" + C.NAME;\n" +
+            "    private final java.util.List<B.Inner> inners = new java.util.ArrayList<>();\n" +
+            "    public Runnable run(C.Kind kind) { return () -> inners.add(new B.Inner(kind.ordinal() + VALUE)); }\n" +
+            "    public class Nested { int get() { return inners.size(); } }\n" +
+            "}\n");
+        write(src, "a/A2.java",
+            "package a;\n" +
+            "public class A2 extends b.B { @Override public int get() { return A.VALUE; } }\n");
+        write(src, "b/B.java",
+            "package b;\n" +
+            "public class B {\n" +
+            "    public static final int VALUE = 41;\n" +
+            "    public int get() { return c.C.Kind.ONE.ordinal(); }\n" +
+            "    public static class Inner { public Inner(int v) {} }\n" +
+            "}\n");
+        write(src, "c/C.java",
+            "package c;\n" +
+            "public interface C {\n" +
+            "    String NAME = \"c\";\n" +
+            "    enum Kind { ONE, TWO; public String lower() { return a.A.NAME + name(); } }\n" +
+            "}\n");
+
+        File single = temp.resolve("single.jar").toFile();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(single))) {
+            compiler(Collections.emptyList()).compile(src, out);
+        }
+
+        //Batches resolve each other through a compiled copy of the same sources, just like findRecomp uses the remapped binary.
+        File partitioned = temp.resolve("partitioned.jar").toFile();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(partitioned))) {
+            compiler(Collections.singletonList(single)).compile(src, 3, out);
+        }
+
+        Map<String, byte[]> expected = read(single);
+        Map<String, byte[]> actual = read(partitioned);
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((name, data) -> assertArrayEquals(data, actual.get(name), name));
+    }
+
+    private static InMemoryJavaCompiler compiler(java.util.Collection<File> classpath) {
+        return new InMemoryJavaCompiler(Logging.getLogger(InMemoryJavaCompilerTest.class), classpath).compatibility("1.8", "1.8");
+    }
+
+    //Entry order depends on which batch finishes first, so only compare the contents.
+    private static Map<String, byte[]> read(File jar) throws IOException {
+        Map<String, byte[]> ret = new TreeMap<>();
+        try (ZipFile zip = new ZipFile(jar)) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                try (InputStream is = zip.getInputStream(entry)) {
+                    ret.put(entry.getName(), IOUtils.toByteArray(is));
+                }
+            }
+        }
+        return ret;
+    }
+
+    private static void write(File root, String name, String data) throws IOException {
+        File file = new File(root, name);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), data.getBytes(StandardCharsets.UTF_8));
+    }
+}
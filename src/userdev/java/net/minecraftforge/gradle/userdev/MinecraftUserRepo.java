@@ -46,8 +46,10 @@ import net.minecraftforge.gradle.common.util.HashStore;
 import net.minecraftforge.gradle.common.util.MavenArtifactDownloader;
 import net.minecraftforge.gradle.common.util.McpNames;
 import net.minecraftforge.gradle.common.util.POMBuilder;
+import net.minecraftforge.gradle.common.util.Profiler;
 import net.minecraftforge.gradle.common.util.RunConfig;
 import net.minecraftforge.gradle.common.util.Utils;
+import net.minecraftforge.gradle.common.util.ZipCache;
 import net.minecraftforge.gradle.mcp.MCPRepo;
 import net.minecraftforge.gradle.mcp.function.MCPFunction;
 import net.minecraftforge.gradle.mcp.function.MCPFunctionFactory;
@@ -59,6 +61,7 @@ import net.minecraftforge.gradle.userdev.tasks.ApplyMCPFunction;
 import net.minecraftforge.gradle.userdev.tasks.HackyJavaCompile;
 import net.minecraftforge.gradle.userdev.tasks.RenameJar;
 import net.minecraftforge.gradle.userdev.tasks.RenameJarInPlace;
+import net.minecraftforge.gradle.userdev.util.InMemoryJavaCompiler;
 import net.minecraftforge.srgutils.IMappingFile;
 import net.minecraftforge.srgutils.MinecraftVersion;
 import net.minecraftforge.srgutils.IMappingFile.IField;
@@ -88,16 +91,19 @@ import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -108,6 +114,11 @@ import java.util.zip.ZipOutputStream;
 
 public class MinecraftUserRepo extends BaseRepo {
     public static final boolean CHANGING_USERDEV = false; //Used when testing to update the userdev cache every 30 seconds.
+    //Serve the remapped binary even when recompiled sources exist, skipping the recompile. Much faster, but line numbers won't match the attached sources.
+    private static final boolean REMAP_BINARY = Boolean.getBoolean("net.minecraftforge.gradle.userdev.remapBinary");
+    //Compile recompiled sources in this many parallel batches, using the remapped binary to resolve references between batches. 0 to compile everything at once.
+    //Batches are threads in this JVM, normally the Gradle daemon, so they share its heap. It's only faster, it doesn't lower the peak memory of the build.
+    private static final int RECOMPILE_PARTITIONS = Integer.getInteger("net.minecraftforge.gradle.userdev.recompile.partitions", 0);
     private static final MinecraftVersion v1_13 = MinecraftVersion.from("1.13");
     private final Project project;
     private final String GROUP;
@@ -149,6 +160,7 @@ public class MinecraftUserRepo extends BaseRepo {
     public MinecraftUserRepo(Project project, String group, String name, String version, List<File> ats, String mapping) {
         super(Utils.getCache(project, "minecraft_user_repo"), project.getLogger());
         this.project = project;
+        Profiler.attach(project);
         this.GROUP = group;
         this.NAME = name;
         this.VERSION = version;
@@ -227,6 +239,7 @@ public class MinecraftUserRepo extends BaseRepo {
 
         runs.forEach((name, run) -> run.tokens(tokens));
 
+        //Always resolved here, before anything can ask us for an artifact, never from inside getArtifact. See below.
         this.extraDataFiles = this.buildExtraDataFiles();
     }
 
@@ -269,6 +282,11 @@ public class MinecraftUserRepo extends BaseRepo {
      * This has the added benefit of speeding up ForgeGradle - this block of
      * code will only be executed once, instead of during every call to
      * compileJava
+     *
+     * Resolving is still expensive, so the resolved files are cached on disk,
+     * keyed by the parent chain and the library list. Every other invocation
+     * just reads that list back, which doesn't touch Gradle at all, so we only
+     * resolve the configuration when a parent changes.
      * @return
      */
     private Set<File> buildExtraDataFiles() {
@@ -282,7 +300,31 @@ public class MinecraftUserRepo extends BaseRepo {
             patcher = patcher.getParent();
         }
         deps.forEach(dep -> cfg.getDependencies().add(project.getDependencies().create(dep)));
-        return cfg.resolve();
+
+        try (Profiler.Span span = Profiler.start("userdev", "findExtraDataFiles")) {
+            File target = cacheRaw("libraries", "txt");
+            HashStore cache = parentHash().load(cacheRaw("libraries", "txt.input"))
+                    .add("deps", String.join("\n", deps));
+
+            if (cache.isSame() && target.exists()) {
+                Set<File> ret = FileUtils.readLines(target, StandardCharsets.UTF_8).stream()
+                        .filter(l -> !l.isEmpty()).map(File::new).collect(Collectors.toCollection(LinkedHashSet::new));
+                if (ret.stream().allMatch(File::exists)) {
+                    debug("  FindExtraDataFiles: Cache Hit");
+                    span.cache(true);
+                    return ret;
+                }
+            }
+
+            debug("  FindExtraDataFiles: Resolving " + cfg.getName());
+            span.cache(false);
+            Set<File> ret = cfg.resolve();
+            FileUtils.writeLines(target, StandardCharsets.UTF_8.name(), ret.stream().map(File::getAbsolutePath).collect(Collectors.toList()));
+            cache.save();
+            return ret;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to resolve Minecraft libraries for " + getDependencyString(), e);
+        }
     }
 
     @SuppressWarnings("unused")
@@ -417,19 +459,27 @@ public class MinecraftUserRepo extends BaseRepo {
     }
 
     private HashStore commonHash(File mapping) {
+        HashStore ret = parentHash();
+        if (mapping != null)
+            ret.add("mapping", mapping);
+        if (AT_HASH != null)
+            ret.add("ats", AT_HASH);
+
+        return ret;
+    }
+
+    /*
+     * Just the MCP config and patchers we're built from, for anything that doesn't change with the mappings or ATs.
+     */
+    private HashStore parentHash() {
         getParents();
         HashStore ret = new HashStore(this.getCacheRoot());
         ret.add(mcp.artifact.getDescriptor(), mcp.getZip());
         Patcher patcher = parent;
         while (patcher != null) {
-            ret.add(parent.artifact.getDescriptor(), parent.data);
+            ret.add(patcher.artifact.getDescriptor(), patcher.data);
             patcher = patcher.getParent();
         }
-        if (mapping != null)
-            ret.add("mapping", mapping);
-        if (AT_HASH != null)
-            ret.add("ats", AT_HASH);
-
         return ret;
     }
 
@@ -534,19 +584,31 @@ public class MinecraftUserRepo extends BaseRepo {
 
     private File findRaw(String mapping) throws IOException {
         File names = findMapping(mapping);
-        HashStore cache = commonHash(names)
-            .add("codever", "2");
-
         if (mapping != null && names == null) {
             debug("  Finding Raw: Could not find names, exiting");
             return null;
         }
 
-        File recomp = findRecomp(mapping, false);
-        if (recomp != null) {
-            debug("  Finding Raw: Returning Recomp: " + recomp);
-            return recomp;
+        if (!REMAP_BINARY) {
+            File recomp = findRecomp(mapping, false);
+            if (recomp != null) {
+                debug("  Finding Raw: Returning Recomp: " + recomp);
+                return recomp;
+            }
+        }
+
+        return findRemapped(mapping, names);
+    }
+
+    private File findRemapped(String mapping, File names) throws IOException {
+        try (Profiler.Span span = Profiler.start("userdev", "findRemapped")) {
+            return findRemapped(span, mapping, names);
         }
+    }
+
+    private File findRemapped(Profiler.Span span, String mapping, File names) throws IOException {
+        HashStore cache = commonHash(names)
+            .add("codever", "2");
 
         if (mapping == null && parent == null) {
             debug("  Finding Raw: Userdev does not provide SRG Minecraft");
@@ -557,8 +619,10 @@ public class MinecraftUserRepo extends BaseRepo {
         cache.load(cacheMapped(mapping, "jar.input"));
         if (cache.isSame() && bin.exists()) {
             debug("  Finding Raw: Cache Hit: " + bin);
+            span.cache(true);
         } else {
             debug("  Finding Raw: Cache Miss");
+            span.cache(false);
             StringBuilder baseAT = new StringBuilder();
 
             for (Patcher patcher = parent; patcher != null; patcher = patcher.parent) {
@@ -584,52 +648,10 @@ public class MinecraftUserRepo extends BaseRepo {
             mci.setInput(srged);
             mci.setMCP(mcp.getZip());
             mci.setOutput(mcinject);
+            span.input(srged);
             mci.apply();
 
-            debug("    Creating MCP Inject Sources");
-            //Build and inject MCP injected sources
-            File inject_src = cacheRaw("inject_src", "jar");
-            try (ZipInputStream zin = new ZipInputStream(new FileInputStream(mcp.getZip()));
-                 ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(inject_src)) ) {
-                String prefix = mcp.wrapper.getConfig().getData("inject");
-                String template = null;
-                ZipEntry entry = null;
-                while ((entry = zin.getNextEntry()) != null) {
-                    if (!entry.getName().startsWith(prefix) || entry.isDirectory())
-                        continue;
-
-                    // If an entry has a specific side in its name, don't apply
-                    // it when we're on the opposite side. Entries without a specific
-                    // side should always be applied
-                    if ("server".equals(NAME) && entry.getName().contains("/client/")) {
-                        continue;
-                    }
-
-                    if ("client".equals(NAME) && entry.getName().contains("/server/")) {
-                        continue;
-                    }
-
-                    String name = entry.getName().substring(prefix.length());
-                    if ("package-info-template.java".equals(name)) {
-                        template = new String(IOUtils.toByteArray(zin), StandardCharsets.UTF_8);
-                    } else {
-                        zos.putNextEntry(Utils.getStableEntry(name));
-                        IOUtils.copy(zin, zos);
-                        zos.closeEntry();
-                    }
-                }
-
-                if (template != null) {
-                    for (String pkg : packages) {
-                        zos.putNextEntry(Utils.getStableEntry(pkg + "/package-info.java"));
-                        zos.write(template.replace("{PACKAGE}", pkg.replace("/", ".")).getBytes(StandardCharsets.UTF_8));
-                        zos.closeEntry();
-                    }
-                }
-            }
-
-            debug("    Compiling MCP Inject sources");
-            File compiled = compileJava(inject_src, mcinject);
+            File compiled = findInjectClasses(packages, srged, mcinject);
             if (compiled == null)
                 return null;
 
@@ -644,19 +666,16 @@ public class MinecraftUserRepo extends BaseRepo {
                     IOUtils.copy(zmci, zout);
                     zout.closeEntry();
                 }
-                Files.walkFileTree(compiled.toPath(), new SimpleFileVisitor<Path>() {
-                    @Override
-                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                        try (InputStream fin = Files.newInputStream(file)) {
-                            zout.putNextEntry(Utils.getStableEntry(compiled.toPath().relativize(file).toString().replace('\\', '/')));
-                            IOUtils.copy(fin, zout);
-                            zout.closeEntry();
-                        }
-                        return FileVisitResult.CONTINUE;
+                try (ZipInputStream zcompiled = new ZipInputStream(new FileInputStream(compiled))) {
+                    while ((entry = zcompiled.getNextEntry()) != null) {
+                        zout.putNextEntry(Utils.getStableEntry(entry.getName()));
+                        IOUtils.copy(zcompiled, zout);
+                        zout.closeEntry();
                     }
-                });
+                }
             }
 
+            span.input(injected);
             if (hasAts) {
                 if (bin.exists()) bin.delete(); // AT lib throws an exception if output file already exists
 
@@ -701,11 +720,101 @@ public class MinecraftUserRepo extends BaseRepo {
             debug("    Finished: " + bin);
             Utils.updateHash(bin, HashFunction.SHA1);
             cache.save();
+            span.output(bin);
         }
         return bin;
     }
 
+    /**
+     * The compiled MCP inject classes only depend on the MCPConfig zip, the side, and the vanilla jar they're compiled against.
+     * So cache them by the hash of those, and share them between every mapping and AT combination.
+     */
+    private File findInjectClasses(Set<String> packages, File srged, File mcinject) throws IOException {
+        try (Profiler.Span span = Profiler.start("userdev", "findInjectClasses")) {
+            return findInjectClasses(span, packages, srged, mcinject);
+        }
+    }
+
+    private File findInjectClasses(Profiler.Span span, Set<String> packages, File srged, File mcinject) throws IOException {
+        List<String> sorted = new ArrayList<>(packages);
+        Collections.sort(sorted);
+        String key = HashFunction.SHA1.hash(String.join("\n", "1", HashFunction.SHA1.hash(mcp.getZip()), NAME, HashFunction.SHA1.hash(srged), String.join(",", sorted)));
+        File target = Utils.getCache(project, "mcp_inject", key + ".jar");
+
+        if (target.exists()) {
+            debug("    Using cached MCP Inject binaries: " + target);
+            span.cache(true);
+            return target;
+        }
+
+        span.cache(false);
+        span.input(mcp.getZip());
+        debug("    Creating MCP Inject Sources");
+        //Build and inject MCP injected sources
+        File inject_src = cacheRaw("inject_src", "jar");
+        try (ZipInputStream zin = new ZipInputStream(new FileInputStream(mcp.getZip()));
+             ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(inject_src)) ) {
+            String prefix = mcp.wrapper.getConfig().getData("inject");
+            String template = null;
+            ZipEntry entry = null;
+            while ((entry = zin.getNextEntry()) != null) {
+                if (!entry.getName().startsWith(prefix) || entry.isDirectory())
+                    continue;
+
+                // If an entry has a specific side in its name, don't apply
+                // it when we're on the opposite side. Entries without a specific
+                // side should always be applied
+                if ("server".equals(NAME) && entry.getName().contains("/client/")) {
+                    continue;
+                }
+
+                if ("client".equals(NAME) && entry.getName().contains("/server/")) {
+                    continue;
+                }
+
+                String name = entry.getName().substring(prefix.length());
+                if ("package-info-template.java".equals(name)) {
+                    template = new String(IOUtils.toByteArray(zin), StandardCharsets.UTF_8);
+                } else {
+                    zos.putNextEntry(Utils.getStableEntry(name));
+                    IOUtils.copy(zin, zos);
+                    zos.closeEntry();
+                }
+            }
+
+            if (template != null) {
+                for (String pkg : packages) {
+                    zos.putNextEntry(Utils.getStableEntry(pkg + "/package-info.java"));
+                    zos.write(template.replace("{PACKAGE}", pkg.replace("/", ".")).getBytes(StandardCharsets.UTF_8));
+                    zos.closeEntry();
+                }
+            }
+        }
+
+        debug("    Compiling MCP Inject sources");
+        if (!target.getParentFile().exists())
+            target.getParentFile().mkdirs();
+        File temp = new File(target.getAbsolutePath() + ".tmp");
+        Set<String> compiled;
+        try (ZipOutputStream zout = new ZipOutputStream(new FileOutputStream(temp))) {
+            compiled = compileJava(inject_src, zout, mcinject);
+        }
+        if (compiled == null) {
+            temp.delete();
+            return null;
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        span.output(target);
+        return target;
+    }
+
     private File findBinpatched(final Set<String> packages) throws IOException {
+        try (Profiler.Span span = Profiler.start("userdev", "findBinpatched")) {
+            return findBinpatched(span, packages);
+        }
+    }
+
+    private File findBinpatched(Profiler.Span span, final Set<String> packages) throws IOException {
         boolean notch = parent != null && parent.getConfigV2() != null && parent.getConfigV2().getNotchObf();
 
         String desc = "net.minecraft:" + (isPatcher ? "joined" : NAME) + ":" + (notch ? mcp.getMCVersion() : mcp.getVersion() + ":srg");
@@ -776,6 +885,7 @@ public class MinecraftUserRepo extends BaseRepo {
 
                 //Add binpatched, then vanilla. First seen overrides any other entries
                 for (File file : new File[] {binpatched, clean}) {
+                    span.input(file);
                     try (ZipInputStream zin = new ZipInputStream(new FileInputStream(file))) {
                         ZipEntry entry;
                         while ((entry = zin.getNextEntry()) != null) {
@@ -803,9 +913,12 @@ public class MinecraftUserRepo extends BaseRepo {
                 rename.setInput(merged);
                 rename.setOutput(srged);
                 rename.setMappings(obf2Srg);
+                span.input(merged);
                 rename.apply();
+                span.output(srged);
                 return srged;
             } else {
+                span.output(merged);
                 return merged;
             }
         }
@@ -955,6 +1068,12 @@ public class MinecraftUserRepo extends BaseRepo {
     }
 
     private File findDecomp(boolean generate) throws IOException {
+        try (Profiler.Span span = Profiler.start("userdev", "findDecomp")) {
+            return findDecomp(span, generate);
+        }
+    }
+
+    private File findDecomp(Profiler.Span span, boolean generate) throws IOException {
         HashStore cache = commonHash(null);
 
         File decomp = cacheAT("decomp", "jar");
@@ -963,9 +1082,12 @@ public class MinecraftUserRepo extends BaseRepo {
 
         if (cache.isSame() && decomp.exists()) {
             debug("  Cache Hit");
+            span.cache(true);
         } else if (decomp.exists() || generate) {
             debug("  Decompiling");
+            span.cache(false);
             File output = mcp.getStepOutput(isPatcher ? "joined" : NAME, null);
+            span.input(output);
             if (parent != null && parent.getConfigV2() != null && parent.getConfigV2().processor != null) {
                 DataFunction data = parent.getConfigV2().processor;
                 DynamicJarExec proc = createTask("postProcess", DynamicJarExec.class);
@@ -994,11 +1116,18 @@ public class MinecraftUserRepo extends BaseRepo {
             }
             cache.save();
             Utils.updateHash(decomp, HashFunction.SHA1);
+            span.output(decomp);
         }
         return decomp.exists() ? decomp : null;
     }
 
     private File findPatched(boolean generate) throws IOException {
+        try (Profiler.Span span = Profiler.start("userdev", "findPatched")) {
+            return findPatched(span, generate);
+        }
+    }
+
+    private File findPatched(Profiler.Span span, boolean generate) throws IOException {
         File decomp = findDecomp(generate);
         if (decomp == null || !decomp.exists()) {
             debug("  Finding Patched: Decomp not found");
@@ -1017,8 +1146,10 @@ public class MinecraftUserRepo extends BaseRepo {
 
         if (cache.isSame() && patched.exists()) {
             debug("    Cache Hit");
+            span.cache(true);
         } else if (patched.exists() || generate) {
             debug("    Generating");
+            span.cache(false);
             LinkedList<Patcher> parents = new LinkedList<>();
             Patcher patcher = parent;
             while (patcher != null) {
@@ -1028,7 +1159,9 @@ public class MinecraftUserRepo extends BaseRepo {
 
             boolean failed = false;
             byte[] lastPatched = FileUtils.readFileToByteArray(decomp);
+            span.input(decomp);
             for (Patcher p : parents) {
+                span.input(p.getZip());
                 ByteArrayOutputStream bout = new ByteArrayOutputStream();
                 PatchOperation.Builder opBuilder = PatchOperation.builder()
                         .logTo(new LoggingOutputStream(project.getLogger(), LogLevel.LIFECYCLE))
@@ -1075,6 +1208,7 @@ public class MinecraftUserRepo extends BaseRepo {
                 patcher = parent;
                 while (patcher != null) {
                     if (patcher.getSources() != null) {
+                        span.input(patcher.getSources());
                         try (ZipInputStream zin = new ZipInputStream(new FileInputStream(patcher.getSources()))) {
                             added.addAll(Utils.copyZipEntries(zout, zin, e -> !added.contains(e) && !e.startsWith("patches/"))); //Skip patches, as they are included in src for reference.
                         }
@@ -1085,11 +1219,18 @@ public class MinecraftUserRepo extends BaseRepo {
                 cache.save();
                 Utils.updateHash(patched, HashFunction.SHA1);
             }
+            span.output(patched);
         }
         return patched.exists() ? patched : null;
     }
 
     private File findSource(String mapping, boolean generate) throws IOException {
+        try (Profiler.Span span = Profiler.start("userdev", "findSource")) {
+            return findSource(span, mapping, generate);
+        }
+    }
+
+    private File findSource(Profiler.Span span, String mapping, boolean generate) throws IOException {
         File patched = findPatched(generate);
         if (patched == null || !patched.exists()) {
             debug("  Finding Source: Patched not found");
@@ -1120,7 +1261,9 @@ public class MinecraftUserRepo extends BaseRepo {
         cache.load(cacheMapped(mapping, "sources", "jar.input"));
         if (cache.isSame() && sources.exists()) {
             debug("    Cache hit");
+            span.cache(true);
         } else if (sources.exists() || generate) {
+            span.cache(false);
             IMappingFile obf_to_srg = IMappingFile.load(obf2srg);
             Set<String> vanilla = obf_to_srg.getClasses().stream().map(IMappingFile.INode::getMapped).collect(Collectors.toSet());
 
@@ -1133,6 +1276,7 @@ public class MinecraftUserRepo extends BaseRepo {
             Charset sourceFileCharset = parent == null || parent.getConfigV2() == null ? StandardCharsets.UTF_8 :
                     Charset.forName(parent.getConfigV2().getSourceFileCharset());
             debug("    Renaming Sources, Javadocs: " + addJavadocs);
+            span.input(patched);
             try(ZipInputStream zin = new ZipInputStream(new FileInputStream(patched));
                 ZipOutputStream zout = new ZipOutputStream(new FileOutputStream(sources))) {
                 ZipEntry _old;
@@ -1153,11 +1297,18 @@ public class MinecraftUserRepo extends BaseRepo {
 
             Utils.updateHash(sources, HashFunction.SHA1);
             cache.save();
+            span.output(sources);
         }
         return sources.exists() ? sources : null;
     }
 
     private File findRecomp(String mapping, boolean generate) throws IOException {
+        try (Profiler.Span span = Profiler.start("userdev", "findRecomp")) {
+            return findRecomp(span, mapping, generate);
+        }
+    }
+
+    private File findRecomp(Profiler.Span span, String mapping, boolean generate) throws IOException {
         File source = findSource(mapping, generate);
         if (source == null || !source.exists()) {
             debug("  Finding Recomp: Sources not found");
@@ -1177,37 +1328,44 @@ public class MinecraftUserRepo extends BaseRepo {
 
         if (cache.isSame() && recomp.exists()) {
             debug("  Finding Recomp: Cache Hit");
+            span.cache(true);
         } else {
+            span.cache(false);
+            span.input(source);
             debug("  Finding recomp: " + cache.isSame() + " " + recomp);
 
-            debug("    Compiling");
-            File compiled = compileJava(source);
-            if (compiled == null) {
-                debug("    Compiling failed");
-                throw new IllegalStateException("Compile failed in findRecomp. See log for more details");
-            }
-
-            debug("    Injecting resources");
-            Set<String> added = new HashSet<>();
+            boolean success = false;
             try (ZipOutputStream zout = new ZipOutputStream(new FileOutputStream(recomp))) {
-                //Add all compiled code
-                Files.walkFileTree(compiled.toPath(), new SimpleFileVisitor<Path>() {
-                    @Override
-                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                        try (InputStream fin = Files.newInputStream(file)) {
-                            String name = compiled.toPath().relativize(file).toString().replace('\\', '/');
-                            zout.putNextEntry(Utils.getStableEntry(name));
-                            IOUtils.copy(fin, zout);
-                            zout.closeEntry();
-                            added.add(name);
-                        }
-                        return FileVisitResult.CONTINUE;
+                //Compiled classes go straight into the jar
+                Set<String> compiled;
+                if (RECOMPILE_PARTITIONS > 1) {
+                    File remapped = findRemapped(mapping, names);
+                    if (remapped == null) {
+                        project.getLogger().warn("MinecraftUserRepo: No remapped binary for " + mapping + ", partitioned compile needs one. Compiling in one batch instead.");
+                        compiled = compileJava(source, zout);
+                    } else {
+                        debug("    Compiling in " + RECOMPILE_PARTITIONS + " partitions against " + remapped);
+                        compiled = compileJava(source, RECOMPILE_PARTITIONS, zout, remapped);
                     }
-                });
-                copyResources(zout, added, false);
+                } else {
+                    debug("    Compiling");
+                    compiled = compileJava(source, zout);
+                }
+                if (compiled == null) {
+                    debug("    Compiling failed");
+                    throw new IllegalStateException("Compile failed in findRecomp. See log for more details");
+                }
+
+                debug("    Injecting resources");
+                copyResources(zout, new HashSet<>(compiled), false);
+                success = true;
+            } finally {
+                if (!success)
+                    recomp.delete();
             }
             Utils.updateHash(recomp, HashFunction.SHA1);
             cache.save();
+            span.output(recomp);
         }
         return recomp;
     }
@@ -1253,7 +1411,43 @@ public class MinecraftUserRepo extends BaseRepo {
     }
 
     private int compileTaskCount = 1;
-    private File compileJava(File source, File... extraDeps) {
+    private Set<String> compileJava(File source, ZipOutputStream zip, File... extraDeps) {
+        return compileJava(source, 0, zip, extraDeps);
+    }
+
+    /**
+     * Compiles the sources, writing every class into the zip as it is produced.
+     * @return The paths of the classes written, or null if the compile failed.
+     */
+    private Set<String> compileJava(File source, int partitions, ZipOutputStream zip, File... extraDeps) {
+        Set<File> files = Sets.newHashSet(this.extraDataFiles);
+        Collections.addAll(files, extraDeps);
+
+        String sourceCompatibility = null;
+        String targetCompatibility = null;
+        if (parent != null) {
+            sourceCompatibility = parent.getConfig().getSourceCompatibility();
+            targetCompatibility = parent.getConfig().getTargetCompatibility();
+        } else {
+            final JavaPluginConvention java = project.getConvention().findPlugin(JavaPluginConvention.class);
+            if (java != null) {
+                sourceCompatibility = java.getSourceCompatibility().toString();
+                targetCompatibility = java.getTargetCompatibility().toString();
+            }
+        }
+
+        InMemoryJavaCompiler memory = new InMemoryJavaCompiler(project.getLogger(), files).compatibility(sourceCompatibility, targetCompatibility);
+        if (memory.isSupported()) {
+            try {
+                return memory.compile(source, partitions, zip);
+            } catch (Exception e) { //Compile errors...?
+                e.printStackTrace();
+                return null;
+            }
+        }
+
+        //We can't compile for this target in process, so let Gradle's toolchain deal with it.
+        debug("    Compiling using Gradle toolchain");
         HackyJavaCompile compile = createTask("compileJava", HackyJavaCompile.class);
         try {
             File output = project.file("build/" + compile.getName() + "/");
@@ -1264,25 +1458,29 @@ public class MinecraftUserRepo extends BaseRepo {
                 // we need to ensure that the output directory already exists
                 output.mkdirs();
             }
-            Set<File> files = Sets.newHashSet(this.extraDataFiles);
-            Collections.addAll(files, extraDeps);
             compile.setClasspath(project.files(files));
-            if (parent != null) {
-                compile.setSourceCompatibility(parent.getConfig().getSourceCompatibility());
-                compile.setTargetCompatibility(parent.getConfig().getTargetCompatibility());
-            } else {
-                final JavaPluginConvention java = project.getConvention().findPlugin(JavaPluginConvention.class);
-                if (java != null) {
-                    compile.setSourceCompatibility(java.getSourceCompatibility().toString());
-                    compile.setTargetCompatibility(java.getTargetCompatibility().toString());
-                }
-            }
+            if (sourceCompatibility != null)
+                compile.setSourceCompatibility(sourceCompatibility);
+            if (targetCompatibility != null)
+                compile.setTargetCompatibility(targetCompatibility);
             compile.setDestinationDir(output);
             compile.setSource(source.isDirectory() ? project.fileTree(source) : project.zipTree(source));
 
             compile.doHackyCompile();
 
-            return output;
+            Set<String> ret = new TreeSet<>();
+            Files.walkFileTree(output.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    String name = output.toPath().relativize(file).toString().replace('\\', '/');
+                    zip.putNextEntry(Utils.getStableEntry(name));
+                    Files.copy(file, zip);
+                    zip.closeEntry();
+                    ret.add(name);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            return ret;
         } catch (Exception e) { //Compile errors...?
             e.printStackTrace();
             return null;
@@ -1292,9 +1490,10 @@ public class MinecraftUserRepo extends BaseRepo {
     }
 
     private static class Patcher {
+        private final Project project;
         private final File data;
-        private final File universal;
-        private final File sources;
+        private File universal;
+        private File sources;
         private final Artifact artifact;
         private final UserdevConfigV1 config;
         private final UserdevConfigV2 configv2;
@@ -1304,6 +1503,7 @@ public class MinecraftUserRepo extends BaseRepo {
         private List<Pattern> universalFilters;
 
         private Patcher(Project project, File data, String artifact) {
+            this.project = project;
             this.data = data;
             this.artifact = Artifact.from(artifact);
 
@@ -1323,22 +1523,6 @@ public class MinecraftUserRepo extends BaseRepo {
 
                 if (getParentDesc() == null)
                     throw new IllegalStateException("Invalid patcher dependency, missing MCP or parent: " + artifact);
-
-                if (config.universal != null) {
-                    universal = MavenArtifactDownloader.manual(project, config.universal, CHANGING_USERDEV);
-                    if (universal == null)
-                        throw new IllegalStateException("Invalid patcher dependency, could not resolve universal: " + universal);
-                } else {
-                    universal = null;
-                }
-
-                if (config.sources != null) {
-                    sources = MavenArtifactDownloader.manual(project, config.sources, CHANGING_USERDEV);
-                    if (sources == null)
-                        throw new IllegalStateException("Invalid patcher dependency, could not resolve sources: " + sources);
-                } else {
-                    sources = null;
-                }
             } catch (IOException e) {
                 throw new RuntimeException("Invalid patcher dependency: " + artifact, e);
             }
@@ -1375,13 +1559,13 @@ public class MinecraftUserRepo extends BaseRepo {
 
             if (ATs == null) {
                 StringBuilder buf = new StringBuilder();
-                try (ZipFile zip = new ZipFile(data)) {
+                try {
                     for (String at : config.getATs()) {
-                        ZipEntry entry = zip.getEntry(at);
+                        byte[] entry = ZipCache.getData(data, at);
                         if (entry == null)
                             throw new IllegalStateException("Invalid Patcher config, Missing Access Transformer: " + at + " Zip: " + data);
                         buf.append("# ").append(artifact).append(" - ").append(at).append('\n');
-                        buf.append(IOUtils.toString(zip.getInputStream(entry), StandardCharsets.UTF_8));
+                        buf.append(new String(entry, StandardCharsets.UTF_8));
                         buf.append('\n');
                     }
                     ATs = buf.toString();
@@ -1398,13 +1582,13 @@ public class MinecraftUserRepo extends BaseRepo {
 
             if (SASs == null) {
                 StringBuilder buf = new StringBuilder();
-                try (ZipFile zip = new ZipFile(data)) {
+                try {
                     for (String sas : config.getSASs()) {
-                        ZipEntry entry = zip.getEntry(sas);
+                        byte[] entry = ZipCache.getData(data, sas);
                         if (entry == null)
                             throw new IllegalStateException("Invalid Patcher config, Missing Side Annotation Stripper: " + sas + " Zip: " + data);
                         buf.append("# ").append(artifact).append(" - ").append(sas).append('\n');
-                        buf.append(IOUtils.toString(zip.getInputStream(entry), StandardCharsets.UTF_8));
+                        buf.append(new String(entry, StandardCharsets.UTF_8));
                         buf.append('\n');
                     }
                     SASs = buf.toString();
@@ -1419,10 +1603,22 @@ public class MinecraftUserRepo extends BaseRepo {
             return data;
         }
 
+        //Only needed to build the artifacts, so downloaded on first use rather than while configuring.
+        //These are plain downloads that never resolve a Gradle configuration, so they're safe from inside getArtifact.
         public File getUniversal() {
+            if (universal == null && config.universal != null) {
+                universal = MavenArtifactDownloader.manual(project, config.universal, CHANGING_USERDEV);
+                if (universal == null)
+                    throw new IllegalStateException("Invalid patcher dependency, could not resolve universal: " + config.universal);
+            }
             return universal;
         }
         public File getSources() {
+            if (sources == null && config.sources != null) {
+                sources = MavenArtifactDownloader.manual(project, config.sources, CHANGING_USERDEV);
+                if (sources == null)
+                    throw new IllegalStateException("Invalid patcher dependency, could not resolve sources: " + config.sources);
+            }
             return sources;
         }
 
@@ -1481,7 +1677,7 @@ public class MinecraftUserRepo extends BaseRepo {
                             Map<String, MCPFunction> preDecomps = Maps.newLinkedHashMap();
                             if (!ats.isEmpty() || AT_HASH != null) {
                                 @SuppressWarnings("deprecation")
-                                MCPFunction function = MCPFunctionFactory.createAT(project, MinecraftUserRepo.this.ATS, ats);
+                                MCPFunction function = MCPFunctionFactory.createAT(MinecraftUserRepo.this.ATS, ats);
                                 preDecomps.put("AccessTransformer", function);
                             }
 
@@ -24,6 +24,7 @@ import net.minecraftforge.gradle.common.task.*;
 import net.minecraftforge.gradle.common.util.BaseRepo;
 import net.minecraftforge.gradle.common.util.MinecraftRepo;
 import net.minecraftforge.gradle.common.util.MojangLicenseHelper;
+import net.minecraftforge.gradle.common.util.Profiler;
 import net.minecraftforge.gradle.common.util.Utils;
 import net.minecraftforge.gradle.common.util.VersionJson;
 import net.minecraftforge.gradle.mcp.MCPRepo;
@@ -62,6 +63,7 @@ public class UserDevPlugin implements Plugin<Project> {
     public void apply(@Nonnull Project project) {
         Utils.checkEnvironment();
         Utils.addRepoFilters(project);
+        Profiler.attach(project);
 
         @SuppressWarnings("unused")
         final Logger logger = project.getLogger();
@@ -210,7 +212,7 @@ public class UserDevPlugin implements Plugin<Project> {
 
             toMCPNew.configure(task -> {
                 task.dependsOn(dlMappingsNew, applyRangeConfig);
-                task.setInput(applyRangeConfig.get().getOutput());
+                task.getInputProperty().set(applyRangeConfig.flatMap(TaskApplyRangeMap::getOutputProperty));
                 task.setMappings(dlMappingsNew.get().getOutput());
             });
 
@@ -22,20 +22,25 @@ package net.minecraftforge.gradle.userdev.tasks;
 
 import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
 
 import net.minecraftforge.gradle.common.task.JarExec;
+import net.minecraftforge.gradle.common.util.AccessTransformerIndex;
 import net.minecraftforge.gradle.common.util.Utils;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-public class AccessTransformJar extends JarExec {
+public abstract class AccessTransformJar extends JarExec {
     private File input;
     private File output;
     private List<File> ats;
@@ -59,6 +64,25 @@ public class AccessTransformJar extends JarExec {
         return ret;
     }
 
+    @Override
+    @TaskAction
+    public void apply() throws IOException {
+        if (Utils.ACCESSTRANSFORMER.equals(getTool())) {
+            //Default tool, so apply in process. Only the targeted classes get rewritten.
+            AccessTransformerIndex.load(getAts(), Collections.emptyList()).apply(getInput(), getOutput());
+        } else {
+            super.apply();
+        }
+    }
+
+    @Override
+    @Optional
+    @InputFile
+    public File getToolJar() {
+        //Only needed if someone asked for a custom tool, no need to download AccessTransformers otherwise.
+        return Utils.ACCESSTRANSFORMER.equals(getTool()) ? null : super.getToolJar();
+    }
+
     @InputFiles
     public List<File> getAts() {
         return ats;
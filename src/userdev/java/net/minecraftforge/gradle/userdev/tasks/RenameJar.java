@@ -24,11 +24,18 @@ import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import com.google.common.collect.Lists;
 
 import net.minecraftforge.gradle.common.task.JarExec;
+import net.minecraftforge.gradle.common.util.JarRemapper;
+import net.minecraftforge.gradle.common.util.MappingIndex;
 import net.minecraftforge.gradle.common.util.Utils;
+import net.minecraftforge.srgutils.IMappingFile;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -38,15 +45,16 @@ import java.util.Map;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-public class RenameJar extends JarExec {
+public abstract class RenameJar extends JarExec {
+    private static final String[] DEFAULT_ARGS = new String[] { "--in-jar", "{input}", "--out-jar", "{output}", "--srg-in", "{mappings}"};
+
     private Supplier<File> input;
     private File output;
     private Supplier<File> mappings;
     private List<Supplier<File>> extraMappings;
 
     public RenameJar() {
-        tool = Utils.SPECIALSOURCE;
-        args = new String[] { "--in-jar", "{input}", "--out-jar", "{output}", "--srg-in", "{mappings}"};
+        defaults(Utils.SPECIALSOURCE, DEFAULT_ARGS);
     }
 
     @Override
@@ -74,6 +82,22 @@ public class RenameJar extends JarExec {
         return _args;
     }
 
+    @Override
+    @TaskAction
+    public void apply() throws IOException {
+        if (isInProcess()) {
+            //Default tool and arguments, so remap in process instead of forking SpecialSource.
+            List<IMappingFile> mappings = new ArrayList<>();
+            for (File file : Lists.asList(getMappings(), getExtraMappings().toArray(new File[0])))
+                mappings.add(MappingIndex.load(file).getMappings());
+
+            new JarRemapper(mappings, getClasspath() == null ? Collections.emptyList() : getClasspath().getFiles())
+                .remap(getInput(), getOutput());
+        } else {
+            super.apply();
+        }
+    }
+
     @InputFile
     public File getMappings() {
         return mappings.get();
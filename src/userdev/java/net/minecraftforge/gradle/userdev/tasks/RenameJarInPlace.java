@@ -22,6 +22,8 @@ package net.minecraftforge.gradle.userdev.tasks;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -31,24 +33,31 @@ import java.util.Map;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-import org.apache.commons.io.FileUtils;
+import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.TaskAction;
 
+import com.google.common.collect.Lists;
+
 import net.minecraftforge.gradle.common.task.JarExec;
+import net.minecraftforge.gradle.common.util.JarRemapper;
+import net.minecraftforge.gradle.common.util.MappingIndex;
 import net.minecraftforge.gradle.common.util.Utils;
+import net.minecraftforge.srgutils.IMappingFile;
+
+public abstract class RenameJarInPlace extends JarExec {
+    private static final String[] DEFAULT_ARGS = new String[] { "--in-jar", "{input}", "--out-jar", "{output}", "--srg-in", "{mappings}", "--live"};
 
-public class RenameJarInPlace extends JarExec {
     private Supplier<File> input;
     private File temp;
     private Supplier<File> mappings;
     private List<Supplier<File>> extraMappings;
+    private boolean incremental = false;
 
     public RenameJarInPlace() {
-        tool = Utils.SPECIALSOURCE;
-        args = new String[] { "--in-jar", "{input}", "--out-jar", "{output}", "--srg-in", "{mappings}", "--live"};
+        defaults(Utils.SPECIALSOURCE, DEFAULT_ARGS);
         this.getOutputs().upToDateWhen(task -> false);
     }
 
@@ -84,9 +93,40 @@ public class RenameJarInPlace extends JarExec {
         if (!temp.getParentFile().exists())
             temp.getParentFile().mkdirs();
 
-        super.apply();
+        if (isInProcess()) {
+            //Default tool and arguments, so remap in process instead of forking SpecialSource.
+            List<IMappingFile> mappings = new ArrayList<>();
+            StringBuilder key = new StringBuilder();
+            for (File file : Lists.asList(getMappings(), getExtraMappings().toArray(new File[0]))) {
+                MappingIndex index = MappingIndex.load(file);
+                mappings.add(index.getMappings());
+                key.append(index.getHash()).append(';');
+            }
 
-        FileUtils.copyFile(temp, getInput());
+            JarRemapper remapper = new JarRemapper(mappings, getClasspath() == null ? Collections.emptyList() : getClasspath().getFiles());
+            if (getIncremental())
+                remapper.cache(getProject().file("build/" + getName() + "/cache/"), key.toString());
+            remapper.remap(getInput(), temp);
+
+            if (getIncremental())
+                getLogger().info("Reobf: Reused " + remapper.getReused() + " classes, remapped " + remapper.getRemapped());
+        } else {
+            super.apply();
+        }
+
+        Files.move(temp.toPath(), getInput().toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * When enabled, classes whose bytes have not changed since the last run are taken from a cache instead of being remapped again.
+     * Off by default, builds that reobfuscate the same jar over and over can turn it on.
+     */
+    @Input
+    public boolean getIncremental() {
+        return this.incremental;
+    }
+    public void setIncremental(boolean value) {
+        this.incremental = value;
     }
 
     @InputFile
@@ -34,7 +34,7 @@ import java.util.Map;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-public class RenameJarSrg2Mcp extends JarExec {
+public abstract class RenameJarSrg2Mcp extends JarExec {
     private Supplier<File> input;
     private File output;
     private Supplier<File> mappings;
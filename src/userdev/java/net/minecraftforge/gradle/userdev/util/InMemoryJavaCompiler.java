@@ -0,0 +1,357 @@
+/*
+ * ForgeGradle
+ * Copyright (C) 2018 Forge Development LLC
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+
+package net.minecraftforge.gradle.userdev.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.JavaVersion;
+import org.gradle.api.logging.Logger;
+
+import net.minecraftforge.gradle.common.util.Utils;
+
+/**
+ * Compiles a zip or directory of sources with the JDK we're running on, without ever touching the disk.
+ * Sources are read straight from the archive and every class file the compiler produces is written straight
+ * into the output jar, so only the class currently being written is held in memory.
+ */
+public class InMemoryJavaCompiler {
+    private static final Pattern IMPORT = Pattern.compile("^import\\s+(?:static\\s+)?([\\w.]+)\\.(?:\\w+|\\*)\\s*;", Pattern.MULTILINE);
+
+    private final Logger logger;
+    private final Collection<File> classpath;
+    private String sourceCompatibility;
+    private String targetCompatibility;
+
+    public InMemoryJavaCompiler(Logger logger, Collection<File> classpath) {
+        this.logger = logger;
+        this.classpath = classpath;
+    }
+
+    public InMemoryJavaCompiler compatibility(String source, String target) {
+        this.sourceCompatibility = source;
+        this.targetCompatibility = target;
+        return this;
+    }
+
+    /**
+     * The in memory compiler needs a full JDK, and it can only target versions the current JDK knows about.
+     * Anything else has to go through Gradle's toolchain.
+     */
+    public boolean isSupported() {
+        if (ToolProvider.getSystemJavaCompiler() == null)
+            return false;
+        for (String version : new String[] { sourceCompatibility, targetCompatibility }) {
+            if (version != null && !JavaVersion.current().isCompatibleWith(JavaVersion.toVersion(version)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The paths of every class written to the output.
+     */
+    public Set<String> compile(File source, ZipOutputStream output) throws IOException {
+        return compile(source.toString(), readSources(source), output);
+    }
+
+    /**
+     * Splits the sources into the specified number of batches, keeping packages together, and compiles each batch on its own thread.
+     * Packages that import each other are put in the same batch where the batch sizes allow it, but Minecraft's packages are too
+     * intertwined to ever split cleanly, so some references will always cross batches.
+     * Batches can't see each other's sources, so the classpath must contain a compiled copy of everything being compiled,
+     * which is then used to resolve those references. Each class is the same as from a single compile: javac only uses the signatures,
+     * constant values and nest members of referenced classes, and a compiled copy of the same sources has the same ones.
+     * Batches are threads in the current JVM. Each compiler only holds the trees for its own batch, but they all share one heap,
+     * so this buys speed, not a lower peak.
+     *
+     * Batches write to the output as they go, so the order of the classes in the output depends on which batch gets there first.
+     *
+     * @return The paths of every class written to the output.
+     */
+    public Set<String> compile(File source, int partitions, ZipOutputStream output) throws IOException {
+        List<Source> sources = readSources(source);
+        Map<String, List<Source>> packages = sources.stream().collect(Collectors.groupingBy(Source::getPackage, TreeMap::new, Collectors.toList()));
+        if (partitions <= 1 || packages.size() <= 1)
+            return compile(source.toString(), sources, output);
+
+        List<List<Source>> batches = partition(packages, Math.min(partitions, packages.size()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(batches.size());
+        try {
+            List<Future<Set<String>>> futures = new ArrayList<>();
+            for (int x = 0; x < batches.size(); x++) {
+                List<Source> batch = batches.get(x);
+                String name = source + " [" + (x + 1) + '/' + batches.size() + ']';
+                futures.add(executor.submit(() -> compile(name, batch, output)));
+            }
+
+            Set<String> ret = new TreeSet<>();
+            for (Future<Set<String>> future : futures)
+                ret.addAll(future.get());
+            return ret;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compiling " + source, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /*
+     * Largest packages first, each onto the batch it shares the most imports with, unless that would make the batch too big.
+     * Packages with nothing in common with a batch that has room go onto the smallest batch, which keeps the batches roughly even.
+     */
+    private static List<List<Source>> partition(Map<String, List<Source>> packages, int count) {
+        Map<String, Map<String, Integer>> links = getLinks(packages);
+        int total = packages.values().stream().mapToInt(List::size).sum();
+        int largest = packages.values().stream().mapToInt(List::size).max().orElse(0);
+        int limit = Math.max(largest, (int)Math.ceil(total * 1.1 / count));
+
+        List<List<Source>> batches = new ArrayList<>();
+        List<Set<String>> members = new ArrayList<>();
+        for (int x = 0; x < count; x++) {
+            batches.add(new ArrayList<>());
+            members.add(new HashSet<>());
+        }
+
+        List<String> sorted = new ArrayList<>(packages.keySet());
+        sorted.sort(Comparator.comparingInt((String pkg) -> packages.get(pkg).size()).reversed());
+        for (String pkg : sorted) {
+            List<Source> files = packages.get(pkg);
+            Map<String, Integer> linked = links.getOrDefault(pkg, Collections.emptyMap());
+
+            int best = -1;
+            int bestScore = 0;
+            for (int x = 0; x < count; x++) {
+                if (batches.get(x).size() + files.size() > limit)
+                    continue;
+                int score = 0;
+                for (String member : members.get(x))
+                    score += linked.getOrDefault(member, 0);
+                if (score > bestScore) {
+                    best = x;
+                    bestScore = score;
+                }
+            }
+            if (best == -1)
+                best = batches.indexOf(batches.stream().min(Comparator.comparingInt(List::size)).get());
+
+            batches.get(best).addAll(files);
+            members.get(best).add(pkg);
+        }
+        return batches;
+    }
+
+    /*
+     * How many imports each package has of each other package being compiled, in either direction.
+     * Static imports and nested classes name a class, so walk up until we find a package we know.
+     */
+    private static Map<String, Map<String, Integer>> getLinks(Map<String, List<Source>> packages) {
+        Map<String, Map<String, Integer>> ret = new HashMap<>();
+        packages.forEach((pkg, files) -> {
+            for (Source file : files) {
+                Matcher matcher = IMPORT.matcher(file.content);
+                while (matcher.find()) {
+                    String target = matcher.group(1).replace('.', '/');
+                    while (!packages.containsKey(target) && target.indexOf('/') != -1)
+                        target = target.substring(0, target.lastIndexOf('/'));
+                    if (!packages.containsKey(target) || target.equals(pkg))
+                        continue;
+                    ret.computeIfAbsent(pkg, k -> new HashMap<>()).merge(target, 1, Integer::sum);
+                    ret.computeIfAbsent(target, k -> new HashMap<>()).merge(pkg, 1, Integer::sum);
+                }
+            }
+        });
+        return ret;
+    }
+
+    private Set<String> compile(String source, List<? extends JavaFileObject> sources, ZipOutputStream output) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null)
+            throw new IllegalStateException("No system java compiler available, are we running on a JRE?");
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Set<String> written = new TreeSet<>();
+
+        try (StandardJavaFileManager standard = compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
+            standard.setLocation(StandardLocation.CLASS_PATH, classpath);
+            standard.setLocation(StandardLocation.SOURCE_PATH, Collections.emptyList()); //Don't go looking for sources in the libraries.
+
+            ForwardingJavaFileManager<StandardJavaFileManager> manager = new ForwardingJavaFileManager<StandardJavaFileManager>(standard) {
+                @Override
+                public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+                    String name = className.replace('.', '/') + kind.extension;
+                    return new SimpleJavaFileObject(URI.create("memory:///" + name), kind) {
+                        @Override
+                        public OutputStream openOutputStream() {
+                            //javac writes each class in one go, so hand it to the jar as soon as it's closed.
+                            return new ByteArrayOutputStream() {
+                                private boolean closed = false;
+
+                                @Override
+                                public void close() throws IOException {
+                                    if (closed)
+                                        return;
+                                    closed = true;
+                                    synchronized (output) { //Partitioned batches share the output
+                                        output.putNextEntry(Utils.getStableEntry(name));
+                                        output.write(buf, 0, count);
+                                        output.closeEntry();
+                                    }
+                                    written.add(name);
+                                }
+                            };
+                        }
+                    };
+                }
+            };
+
+            List<String> options = new ArrayList<>();
+            options.add("-g");
+            options.add("-nowarn");
+            options.add("-proc:none");
+            String release = getRelease(compiler);
+            if (release != null) {
+                options.add("--release");
+                options.add(release);
+            } else {
+                if (sourceCompatibility != null) {
+                    options.add("-source");
+                    options.add(sourceCompatibility);
+                }
+                if (targetCompatibility != null) {
+                    options.add("-target");
+                    options.add(targetCompatibility);
+                }
+            }
+
+            boolean success = compiler.getTask(null, manager, diagnostics, options, null, sources).call();
+            for (Diagnostic<? extends JavaFileObject> diag : diagnostics.getDiagnostics()) {
+                if (diag.getKind() == Diagnostic.Kind.ERROR)
+                    logger.error(diag.toString());
+            }
+            if (!success)
+                throw new IllegalStateException("Failed to compile " + source + ", see log for details");
+        }
+        return written;
+    }
+
+    /*
+     * -source/-target on a newer JDK still compiles against that JDK's class library, so the output can link against methods that
+     * don't exist on the target, like the covariant ByteBuffer.flip() from Java 9, which then fails with NoSuchMethodError on Java 8.
+     * --release compiles against the target's own API, so use it whenever the compiler has it and we're targeting an older Java.
+     */
+    private String getRelease(JavaCompiler compiler) {
+        String version = targetCompatibility != null ? targetCompatibility : sourceCompatibility;
+        if (version == null || !JavaVersion.current().isJava9Compatible() || compiler.isSupportedOption("--release") == -1)
+            return null;
+        JavaVersion target = JavaVersion.toVersion(version);
+        return target.isJava9Compatible() ? null : target.getMajorVersion();
+    }
+
+    private static List<Source> readSources(File source) throws IOException {
+        List<Source> ret = new ArrayList<>();
+        if (source.isDirectory()) {
+            Path root = source.toPath();
+            try (Stream<Path> files = Files.walk(root)) {
+                for (Path file : files.filter(p -> p.toString().endsWith(".java")).collect(Collectors.toList()))
+                    ret.add(new Source(root.relativize(file).toString().replace('\\', '/'), new String(Files.readAllBytes(file), StandardCharsets.UTF_8)));
+            }
+        } else {
+            try (ZipFile zip = new ZipFile(source)) {
+                Utils.forZip(zip, e -> {
+                    if (!e.getName().endsWith(".java"))
+                        return;
+                    try (InputStream is = zip.getInputStream(e)) {
+                        ret.add(new Source(e.getName(), IOUtils.toString(is, StandardCharsets.UTF_8)));
+                    }
+                });
+            }
+        }
+        return ret;
+    }
+
+    private static class Source extends SimpleJavaFileObject {
+        private final String pkg;
+        private final String content;
+
+        private Source(String name, String content) {
+            super(URI.create("memory:///" + name), Kind.SOURCE);
+            this.pkg = name.indexOf('/') == -1 ? "" : name.substring(0, name.lastIndexOf('/'));
+            this.content = content;
+        }
+
+        private String getPackage() {
+            return this.pkg;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+}